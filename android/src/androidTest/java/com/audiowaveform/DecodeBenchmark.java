@@ -0,0 +1,111 @@
+package com.audiowaveform;
+
+import android.content.Context;
+import android.os.Bundle;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * MediaCodec 解码路径在设备上的基准：AAC / MP3 夹具分别走串行、分段并行和近似（fast）解码，
+ * 每次迭代包含打开文件、借出解码器、解码和归约到 200 个区间。
+ * 运行：./gradlew connectedReleaseAndroidTest，可加
+ * -Pandroid.testInstrumentationRunnerArguments.durations=60,600 指定夹具时长（秒）。
+ * 夹具首次运行时生成并保留在应用缓存目录，结果由 AndroidX Benchmark 写入设备输出目录。
+ */
+@RunWith(Parameterized.class)
+public class DecodeBenchmark {
+
+    private static final int BUCKETS = 200;
+    private static final String DEFAULT_DURATIONS = "60,600";
+
+    @Parameterized.Parameters(name = "{0}-{1}s-{2}")
+    public static List<Object[]> parameters() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String durations = arguments.getString("durations", DEFAULT_DURATIONS);
+        List<Object[]> parameters = new ArrayList<>();
+        for (String codec : new String[]{"aac", "mp3"}) {
+            for (String duration : durations.split(",")) {
+                for (String path : new String[]{"serial", "segmented", "sparse"}) {
+                    parameters.add(new Object[]{codec, Integer.parseInt(duration.trim()), path});
+                }
+            }
+        }
+        return parameters;
+    }
+
+    @Rule
+    public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameter(0)
+    public String codec;
+
+    @Parameterized.Parameter(1)
+    public int durationSec;
+
+    @Parameterized.Parameter(2)
+    public String path;
+
+    private File file;
+    private DecoderPool pool;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File dir = new File(context.getCacheDir(), "benchmark-fixtures");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("无法创建夹具目录: " + dir);
+        }
+        file = "aac".equals(codec) ? DecodeFixtures.aac(dir, durationSec) : DecodeFixtures.mp3(dir, durationSec);
+        pool = new DecoderPool(CodecLimits.maxDecoderInstances());
+        executor = Executors.newFixedThreadPool(CodecLimits.workerCount());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.shutdown();
+    }
+
+    @Test
+    public void decode() throws Exception {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            WaveformDecoder.Source source = WaveformDecoder.open(file.getAbsolutePath(), null);
+            try {
+                WaveformReducer reducer = new WaveformReducer(BUCKETS, source.durationUs);
+                switch (path) {
+                    case "segmented":
+                        WaveformDecoder.decodeSegmented(source, pool, reducer, CodecLimits.workerCount(), executor,
+                                cancelled, null, null);
+                        break;
+                    case "sparse":
+                        WaveformDecoder.decodeSparse(source, pool, reducer, 4096, cancelled, null, null);
+                        break;
+                    default:
+                        WaveformDecoder.decode(source, pool, reducer, cancelled, null, null);
+                        break;
+                }
+                if (reducer.isEmpty()) {
+                    throw new IllegalStateException("未提取到音频数据: " + file);
+                }
+            } finally {
+                source.release();
+            }
+        }
+    }
+}
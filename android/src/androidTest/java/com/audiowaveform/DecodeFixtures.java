@@ -0,0 +1,136 @@
+package com.audiowaveform;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 设备基准用的压缩音频夹具，在设备上生成后按参数命名缓存，多次运行只生成一次。
+ */
+final class DecodeFixtures {
+
+    static final int SAMPLE_RATE = 44100;
+
+    private static final long TIMEOUT_US = 10000;
+    private static final int AAC_BIT_RATE = 128_000;
+    // MPEG-1 Layer III、128kbps、44.1kHz、单声道，无 CRC
+    private static final byte[] MP3_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0xC4};
+    private static final int MP3_FRAME_BYTES = 144 * 128_000 / SAMPLE_RATE;
+    private static final int MP3_FRAME_SAMPLES = 1152;
+
+    private DecodeFixtures() {}
+
+    /**
+     * durationSec 秒的立体声 AAC-LC（.m4a），由设备的 AAC 编码器编码生成的信号。
+     */
+    static File aac(File dir, int durationSec) throws IOException {
+        File file = new File(dir, "aac-2ch-" + SAMPLE_RATE + "-" + durationSec + "s.m4a");
+        if (file.length() > 0) return file;
+        File tmp = new File(dir, file.getName() + ".tmp");
+        encodeAac(tmp, 2, (long) durationSec * SAMPLE_RATE);
+        return commit(tmp, file);
+    }
+
+    /**
+     * durationSec 秒的 CBR MP3。设备上没有 MP3 编码器，这里直接写出零频谱的帧：
+     * 解码器仍要对每一帧做完整的合成滤波，只是哈夫曼解码部分比真实内容少。
+     */
+    static File mp3(File dir, int durationSec) throws IOException {
+        File file = new File(dir, "mp3-1ch-" + SAMPLE_RATE + "-" + durationSec + "s.mp3");
+        if (file.length() > 0) return file;
+        File tmp = new File(dir, file.getName() + ".tmp");
+        long frames = (long) durationSec * SAMPLE_RATE / MP3_FRAME_SAMPLES;
+        byte[] frame = new byte[MP3_FRAME_BYTES];
+        System.arraycopy(MP3_HEADER, 0, frame, 0, MP3_HEADER.length);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            for (long i = 0; i < frames; i++) {
+                out.write(frame);
+            }
+        }
+        return commit(tmp, file);
+    }
+
+    // 与 JVM 基准的 WavFixtures.signal 相同：包络调制的正弦加少量噪声
+    static double signal(long frame, int channel, int sampleRate) {
+        double t = frame / (double) sampleRate;
+        double envelope = 0.15 + 0.7 * Math.abs(Math.sin(2 * Math.PI * 0.37 * t + channel));
+        double tone = Math.sin(2 * Math.PI * (220 + 110 * channel) * t);
+        double noise = ((frame * 2654435761L + channel * 40503L) % 1000) / 1000.0 - 0.5;
+        return Math.max(-1, Math.min(1, envelope * (0.8 * tone + 0.2 * noise)));
+    }
+
+    private static void encodeAac(File out, int channels, long totalFrames) throws IOException {
+        String mime = MediaFormat.MIMETYPE_AUDIO_AAC;
+        MediaFormat format = MediaFormat.createAudioFormat(mime, SAMPLE_RATE, channels);
+        format.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, AAC_BIT_RATE);
+        MediaCodec encoder = MediaCodec.createEncoderByType(mime);
+        MediaMuxer muxer = new MediaMuxer(out.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        boolean muxing = false;
+        try {
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            int track = -1;
+            long frame = 0;
+            boolean inputDone = false;
+            while (true) {
+                if (!inputDone) {
+                    int inputIndex = encoder.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = encoder.getInputBuffer(inputIndex);
+                        input.clear();
+                        input.order(ByteOrder.LITTLE_ENDIAN);
+                        long ptsUs = frame * 1_000_000L / SAMPLE_RATE;
+                        int start = input.position();
+                        while (frame < totalFrames && input.remaining() >= channels * 2) {
+                            for (int c = 0; c < channels; c++) {
+                                input.putShort((short) Math.round(signal(frame, c, SAMPLE_RATE) * 32767));
+                            }
+                            frame++;
+                        }
+                        int size = input.position() - start;
+                        inputDone = frame >= totalFrames;
+                        encoder.queueInputBuffer(inputIndex, 0, size, ptsUs,
+                                inputDone ? MediaCodec.BUFFER_FLAG_END_OF_STREAM : 0);
+                    }
+                }
+
+                int outputIndex = encoder.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(encoder.getOutputFormat());
+                    muxer.start();
+                    muxing = true;
+                } else if (outputIndex >= 0) {
+                    ByteBuffer output = encoder.getOutputBuffer(outputIndex);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && info.size > 0 && muxing) {
+                        output.position(info.offset).limit(info.offset + info.size);
+                        muxer.writeSampleData(track, output, info);
+                    }
+                    encoder.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) break;
+                }
+            }
+        } finally {
+            encoder.release();
+            if (muxing) muxer.stop();
+            muxer.release();
+        }
+    }
+
+    private static File commit(File tmp, File file) throws IOException {
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("写入夹具失败: " + file);
+        }
+        return file;
+    }
+}
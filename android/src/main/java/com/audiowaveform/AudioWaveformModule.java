@@ -1,34 +1,84 @@
 package com.audiowaveform;
 
 import com.facebook.react.bridge.*;
-import android.media.MediaExtractor;
-import android.media.MediaCodec;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import android.Manifest;
+import android.content.pm.PackageManager;
 import android.media.MediaFormat;
+import android.util.Base64;
 import android.util.Log;
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AudioWaveformModule extends ReactContextBaseJavaModule {
 
     private static final String TAG = "AudioWaveform";
-    private AtomicBoolean isCancelled = new AtomicBoolean(false);
-    private AtomicBoolean isProcessing = new AtomicBoolean(false);
-    private static final float MAX_AMPLITUDE = 32767f;
+    public static final String EVENT_BATCH_ITEM = "AudioWaveformBatchItem";
+    public static final String EVENT_LIVE = "AudioWaveformLive";
 
     // 限制常量
-    private static final int MAX_SAMPLES = 5000000; // 增加到500万样本，支持更大的音频文件
-    private static final int MAX_BUFFER_SIZE = 8192;
-    private static final float SILENCE_THRESHOLD = 0.001f; // 静音阈值
-
-    private ExecutorService executorService;
+    private static final long CACHE_MAX_DISK_BYTES = 16L * 1024 * 1024;
+    private static final int CACHE_MAX_MEMORY_ENTRIES = 128;
+    // 金字塔体积较大：磁盘单独限额，内存只保留最近使用的几个
+    private static final long PYRAMID_MAX_DISK_BYTES = 64L * 1024 * 1024;
+    private static final int PYRAMID_MAX_MEMORY_ENTRIES = 4;
+    // 远程音频的字节缓存
+    private static final long HTTP_CACHE_MAX_DISK_BYTES = 256L * 1024 * 1024;
+    private static final int RANGE_MAX_POINTS = 10000;
+    private static final int RECENT_STATS_SIZE = 20;
+    private static final int LIVE_DEFAULT_SAMPLE_RATE = 44100;
+    private static final int LIVE_DEFAULT_INTERVAL_MS = 50;
+    private static final int LIVE_DEFAULT_UPDATE_INTERVAL_MS = 50;
+
+    private final WaveformScheduler<WaveformCache.Entry> scheduler;
+    // fast 请求合并前先读取文件头确定实际模式，文件头很小，不与解码作业共用线程排队
+    private final WaveformScheduler<Boolean> modeScheduler;
+    private final WaveformCache cache;
+    // 金字塔的磁盘缓存存放第 0 层，内存中保留完整的各层数据
+    private final WaveformCache pyramidCache;
+    private final LinkedHashMap<String, WaveformPyramid> pyramids = new LinkedHashMap<>(8, 0.75f, true);
+    private final HttpByteCache httpCache;
+    private final ExecutorService segmentExecutor;
+    // 批量解码通道会排队等待解码器，与分段解码的线程分开，避免占满线程后持有解码器的分段无法执行
+    private final ExecutorService laneExecutor;
+    private final DecoderPool decoderPool;
+    private final AtomicLong nativeJobIds = new AtomicLong();
+    // 请求了进度推送的任务 ID 及其波形类型
+    private final Map<String, String> progressJobs = new ConcurrentHashMap<>();
+    // 所有作业的累计统计和最近若干个作业的统计
+    private final JobStats totalStats = new JobStats();
+    private final ArrayDeque<Map<String, Object>> recentStats = new ArrayDeque<>();
+    // 同一时间只允许一个实时录音，以下状态由 liveLock 保护
+    private final Object liveLock = new Object();
+    private LiveWaveformRecorder liveRecorder;
+    private int liveSamples;
+    private String liveType;
 
     public AudioWaveformModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        executorService = Executors.newSingleThreadExecutor();
+        scheduler = new WaveformScheduler<>(CodecLimits.workerCount());
+        modeScheduler = new WaveformScheduler<>(1);
+        segmentExecutor = Executors.newFixedThreadPool(CodecLimits.workerCount());
+        laneExecutor = Executors.newFixedThreadPool(CodecLimits.workerCount());
+        decoderPool = new DecoderPool(CodecLimits.maxDecoderInstances());
+        cache = new WaveformCache(new File(reactContext.getCacheDir(), "audio-waveform"),
+                CACHE_MAX_DISK_BYTES, CACHE_MAX_MEMORY_ENTRIES);
+        pyramidCache = new WaveformCache(new File(reactContext.getCacheDir(), "audio-waveform-pyramid"),
+                PYRAMID_MAX_DISK_BYTES, 0);
+        httpCache = new HttpByteCache(new File(reactContext.getCacheDir(), "audio-waveform-http"),
+                HTTP_CACHE_MAX_DISK_BYTES);
     }
 
     @Override
@@ -36,264 +86,762 @@ public class AudioWaveformModule extends ReactContextBaseJavaModule {
         return "AudioWaveform";
     }
 
+    @Override
+    public void invalidate() {
+        LiveWaveformRecorder recorder;
+        synchronized (liveLock) {
+            recorder = liveRecorder;
+            liveRecorder = null;
+        }
+        if (recorder != null) {
+            try {
+                recorder.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        modeScheduler.shutdown();
+        scheduler.shutdown();
+        segmentExecutor.shutdownNow();
+        laneExecutor.shutdownNow();
+        decoderPool.shutdown();
+        super.invalidate();
+    }
+
     @ReactMethod
     public void getWaveform(ReadableMap options, Callback callback) {
-        Log.d(TAG, "开始处理波形生成");
+        WaveformRequest request = WaveformRequest.fromOptions(options, "native-" + nativeJobIds.incrementAndGet());
+        String jobId = request.jobId;
+        if (DebugLog.enabled) Log.d(TAG, "参数信息 - " + request);
+
+        if (request.url == null || request.url.isEmpty()) {
+            callback.invoke(createError(jobId, "音频文件路径不能为空"));
+            return;
+        }
+
+        // 同一 jobId 的请求已在处理时其进度登记保持不变
+        boolean progressAdded = request.progress && progressJobs.putIfAbsent(jobId, request.type) == null;
 
-        if (isProcessing.get()) {
-            Log.w(TAG, "已有任务正在处理中");
+        if (!request.isFast()) {
+            submitWaveform(request, callback, progressAdded);
             return;
         }
 
-        executorService.execute(() -> {
-            processWaveformInBackground(options, callback);
-        });
+        // WAV / 裸 PCM 的 fast 请求按 exact 计算。先在作业中读取文件头确定实际模式，再按确定后的 key 合并，
+        // 同一文件的 fast 与 exact 请求只计算一次；合并的每个请求都按同一结果修正自己的 mode
+        boolean submitted = modeScheduler.submit(jobId, request.modeKey(), request.priority,
+                cancelled -> request.isPcmInput(request.url),
+                new WaveformScheduler.Listener<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean pcmInput) {
+                        request.resolveMode(pcmInput);
+                        submitWaveform(request, callback, progressAdded);
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        progressJobs.remove(jobId);
+                        callback.invoke(createError(jobId, "音频解析失败: " + error.getMessage()));
+                    }
+
+                    @Override
+                    public void onCancelled() {
+                        progressJobs.remove(jobId);
+                        callback.invoke(createError(jobId, "任务已取消"));
+                    }
+                });
+        if (!submitted) {
+            if (progressAdded) progressJobs.remove(jobId);
+            callback.invoke(createError(jobId, "任务 ID 已存在: " + jobId));
+        }
     }
 
-    private void processWaveformInBackground(ReadableMap options, Callback callback) {
-        String url = options.getString("url");
-        int samples = options.hasKey("samples") ? options.getInt("samples") : 200;
-        String waveformType = options.hasKey("type") ? options.getString("type") : "amplitude";
+    // 提交 mode 已确定的请求；读取文件头、查缓存都涉及磁盘，放在作业中执行，不阻塞模块线程上的其他调用
+    private void submitWaveform(WaveformRequest request, Callback callback, boolean progressAdded) {
+        String jobId = request.jobId;
+        String jobKey = request.jobKey();
+        boolean submitted = scheduler.submit(jobId, jobKey, request.priority,
+                cancelled -> computeWaveform(request, jobKey, cancelled),
+                new WaveformScheduler.Listener<WaveformCache.Entry>() {
+                    @Override
+                    public void onSuccess(WaveformCache.Entry entry) {
+                        progressJobs.remove(jobId);
+                        callback.invoke(createResult(request, entry));
+                        recordStats(entry.stats);
+                    }
 
-        samples = Math.max(1, Math.min(500, samples));
-        Log.d(TAG, "参数信息 - URL:" + url + ", 采样点数:" + samples + ", 类型:" + waveformType);
+                    @Override
+                    public void onError(Exception error) {
+                        progressJobs.remove(jobId);
+                        String message = error instanceof WaveformException
+                                ? error.getMessage() : "音频解析失败: " + error.getMessage();
+                        callback.invoke(createError(jobId, message));
+                    }
 
-        if (url == null || url.isEmpty()) {
-            WritableMap errorResult = Arguments.createMap();
-            errorResult.putString("error", "音频文件路径不能为空");
-            callback.invoke(errorResult);
-            return;
+                    @Override
+                    public void onCancelled() {
+                        progressJobs.remove(jobId);
+                        callback.invoke(createError(jobId, "任务已取消"));
+                    }
+                });
+        if (!submitted) {
+            if (progressAdded) progressJobs.remove(jobId);
+            callback.invoke(createError(jobId, "任务 ID 已存在: " + jobId));
         }
+    }
 
-        isProcessing.set(true);
-        isCancelled.set(false);
+    private WaveformCache.Entry computeWaveform(WaveformRequest request, String jobKey,
+                                                AtomicBoolean cancelled) throws Exception {
+        WaveformCache.Entry cached = getCachedWaveform(request);
+        if (cached != null) {
+            return cached;
+        }
 
-        MediaExtractor extractor = null;
-        MediaCodec codec = null;
+        JobStats stats = new JobStats();
+        long start = System.nanoTime();
+        String cacheKey = request.useCache
+                ? WaveformCache.keyFor(request.url, request.samples, request.resultVariant()) : null;
+        WaveformCache.Entry entry = decodeWaveform(request, jobKey, cancelled, stats);
+        if (entry == null) return null;
+        if (cacheKey != null) {
+            cache.put(cacheKey, entry);
+        }
+        stats.setTotal(System.nanoTime() - start);
+        return entry.withStats(stats);
+    }
 
+    // 从缓存读取请求的结果，未命中或不使用缓存时返回 null
+    private WaveformCache.Entry getCachedWaveform(WaveformRequest request) {
+        if (!request.useCache) return null;
+        long start = System.nanoTime();
+        String cacheKey = WaveformCache.keyFor(request.url, request.samples, request.resultVariant());
+        WaveformCache.Entry cached = cacheKey != null ? cache.get(cacheKey) : null;
+        if (cached == null) return null;
+        JobStats stats = new JobStats();
+        stats.setSource("cache");
+        stats.setTotal(System.nanoTime() - start);
+        return cached.withStats(stats);
+    }
+
+    private WaveformCache.Entry decodeWaveform(WaveformRequest request, String jobKey,
+                                               AtomicBoolean cancelled, JobStats stats) throws Exception {
+        // 未压缩 WAV / 裸 PCM 直接映射读取，不经过解码器
+        File file = request.localFile();
+        if (file != null) {
+            WavFileReader.Format pcmFormat = request.pcmEncoding >= 0
+                    ? WavFileReader.raw(file, request.pcmEncoding, request.pcmChannels, request.pcmSampleRate)
+                    : WavFileReader.parse(file);
+            if (pcmFormat != null) {
+                return reducePcmFile(request, jobKey, file, pcmFormat, cancelled, stats);
+            }
+        }
+
+        long openStart = System.nanoTime();
+        WaveformDecoder.Source source = WaveformDecoder.open(request.url, httpCache);
+        stats.addExtractorSetup(System.nanoTime() - openStart);
         try {
-            extractor = new MediaExtractor();
-            extractor.setDataSource(url);
-
-            int audioTrackIndex = -1;
-            MediaFormat format = null;
-            for (int i = 0; i < extractor.getTrackCount(); i++) {
-                MediaFormat f = extractor.getTrackFormat(i);
-                String mime = f.getString(MediaFormat.KEY_MIME);
-                if (mime != null && mime.startsWith("audio/")) {
-                    audioTrackIndex = i;
-                    format = f;
-                    break;
-                }
+            // 按时长预先划分输出区间，解码帧直接归约，不再缓存全部样本
+            int channelCount = source.format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            WaveformReducer reducer = new WaveformReducer(request.samples, source.durationUs,
+                    request.trackedChannels(channelCount));
+            WaveformProgressEmitter emitter = createEmitter(request, jobKey, reducer);
+
+            if (request.isFast()) {
+                WaveformDecoder.decodeSparse(source, decoderPool, reducer, request.windowFrames, cancelled, emitter,
+                        stats);
+            } else if (request.segments > 1) {
+                WaveformDecoder.decodeSegmented(source, decoderPool, reducer, request.segments, segmentExecutor,
+                        cancelled, emitter, stats);
+            } else {
+                WaveformDecoder.decode(source, decoderPool, reducer, cancelled, emitter, stats);
             }
 
-            if (audioTrackIndex == -1 || format == null) {
-                WritableMap errorResult = Arguments.createMap();
-                errorResult.putString("error", "未找到音频轨道");
-                callback.invoke(errorResult);
-                return;
+            if (cancelled.get()) {
+                return null;
             }
 
-            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
-            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
-            long durationUs = format.getLong(MediaFormat.KEY_DURATION);
-            double durationSec = durationUs / 1_000_000.0;
+            if (reducer.isEmpty()) {
+                throw new WaveformException("未提取到音频数据");
+            }
 
-            extractor.selectTrack(audioTrackIndex);
-            String mimeType = format.getString(MediaFormat.KEY_MIME);
+            emitter.finish();
+            return new WaveformCache.Entry(source.durationUs, WaveformMetrics.fromReducer(reducer).toPacked());
+        } finally {
+            source.release();
+        }
+    }
 
-            codec = MediaCodec.createDecoderByType(mimeType);
-            codec.configure(format, null, null, 0);
-            codec.start();
+    private WaveformCache.Entry reducePcmFile(WaveformRequest request, String jobKey, File file,
+                                              WavFileReader.Format format, AtomicBoolean cancelled,
+                                              JobStats stats) throws Exception {
+        stats.setSource("pcm");
+        long durationUs = format.durationUs();
+        if (durationUs <= 0) {
+            throw new WaveformException("未提取到音频数据");
+        }
 
-            List<PCMSample> allSamples = new ArrayList<>();
-            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
-            boolean isEOS = false;
-            long processStartTime = System.currentTimeMillis();
+        WaveformReducer reducer = new WaveformReducer(request.samples, durationUs,
+                request.trackedChannels(format.channelCount));
+        WaveformProgressEmitter emitter = createEmitter(request, jobKey, reducer);
+        long reduceStart = System.nanoTime();
+        WavFileReader.reduce(file, format, reducer, segmentExecutor, CodecLimits.cpuCount(), cancelled, emitter);
+        stats.addDecode(0, System.nanoTime() - reduceStart, format.frameCount() * format.frameSize(),
+                format.frameCount() * format.channelCount);
+        if (cancelled.get()) {
+            return null;
+        }
 
-            while (!isCancelled.get() && !isEOS) {
-                // 只检查内存限制，不设置超时
-                if (allSamples.size() > MAX_SAMPLES) {
-                    Log.w(TAG, "采样数过多，停止处理。当前样本数:" + allSamples.size());
-                    break;
-                }
-                
-                // 每10秒输出一次进度
-                long currentTime = System.currentTimeMillis();
-                long elapsed = currentTime - processStartTime;
-                if (elapsed > 0 && elapsed % 10000 < 100 && elapsed > 10000) {
-                    Log.d(TAG, "处理进度 - 已收集样本数:" + allSamples.size() + 
-                          ", 耗时:" + elapsed + "ms");
-                }
+        emitter.finish();
+        return new WaveformCache.Entry(durationUs, WaveformMetrics.fromReducer(reducer).toPacked());
+    }
 
-                int inputIndex = codec.dequeueInputBuffer(10000);
-                if (inputIndex >= 0) {
-                    ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
-                    if (inputBuffer != null) {
-                        int sampleSize = extractor.readSampleData(inputBuffer, 0);
-                        if (sampleSize < 0) {
-                            codec.queueInputBuffer(inputIndex, 0, 0, 0,
-                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
-                            isEOS = true;
-                        } else {
-                            long presentationTimeUs = extractor.getSampleTime();
-                            codec.queueInputBuffer(inputIndex, 0, sampleSize, presentationTimeUs, 0);
-                            extractor.advance();
-                        }
+    private WaveformProgressEmitter createEmitter(WaveformRequest request, String jobKey, WaveformReducer reducer) {
+        return new WaveformProgressEmitter(getReactApplicationContext(), () -> scheduler.jobIds(jobKey),
+                progressJobs, reducer, request.progressIntervalMs);
+    }
+
+    /**
+     * 批量生成波形：一次调用处理多个文件，URL 去重并优先使用缓存，其余文件由多条通道复用解码器解码。
+     * options.stream 为 true 时每完成一个文件推送一次 AudioWaveformBatchItem 事件，最终结果不再包含 values。
+     */
+    @ReactMethod
+    public void getWaveforms(ReadableArray urls, ReadableMap options, Promise promise) {
+        WaveformRequest request = WaveformRequest.fromOptions(options, "native-" + nativeJobIds.incrementAndGet());
+        boolean stream = options.hasKey("stream") && options.getBoolean("stream");
+        List<String> urlList = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            urlList.add(urls.isNull(i) ? "" : urls.getString(i));
+        }
+        WaveformBatch batch = new WaveformBatch(urlList, request, cache, decoderPool, httpCache);
+        if (DebugLog.enabled) {
+            Log.d(TAG, "批量参数 - 文件数:" + urlList.size() + ", 去重后:" + batch.getItems().size() + ", " + request);
+        }
+
+        WaveformBatch.ItemListener itemListener = stream ? item -> emitBatchItem(request, batch, item) : null;
+        boolean submitted = scheduler.submit(request.jobId, "batch|" + request.jobId, request.priority,
+                cancelled -> {
+                    batch.run(laneExecutor, CodecLimits.workerCount(), cancelled, itemListener);
+                    return null;
+                },
+                new WaveformScheduler.Listener<WaveformCache.Entry>() {
+                    @Override
+                    public void onSuccess(WaveformCache.Entry ignored) {
+                        promise.resolve(createBatchResult(request, batch, !stream));
                     }
-                }
 
-                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, 10000);
-                while (outputIndex >= 0 && !isCancelled.get()) {
-                    ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
-                    if (outputBuffer != null && bufferInfo.size > 0) {
-                        int bufferSize = Math.min(bufferInfo.size, MAX_BUFFER_SIZE);
-                        short[] shorts = new short[bufferSize / 2];
-                        outputBuffer.asShortBuffer().get(shorts);
-
-                        double startTimeSec = bufferInfo.presentationTimeUs / 1_000_000.0;
-                        double sampleInterval = 1.0 / sampleRate;
-
-                        // --- 立体声转单声道 ---
-                        short[] processedShorts = shorts;
-                        if (channelCount > 1) {
-                            processedShorts = new short[shorts.length / channelCount];
-                            for (int i = 0, j = 0; i < shorts.length; i += channelCount, j++) {
-                                int sum = 0;
-                                for (int c = 0; c < channelCount; c++) {
-                                    sum += Math.abs(shorts[i + c]);
-                                }
-                                processedShorts[j] = (short) (sum / channelCount);
-                            }
-                        }
+                    @Override
+                    public void onError(Exception error) {
+                        promise.reject("E_WAVEFORM", "批量解析失败: " + error.getMessage());
+                    }
 
-                        // --- 区间采样 ---
-                        int step = Math.max(1, processedShorts.length / 100);
-                        for (int i = 0; i < processedShorts.length; i += step) {
-                            if (allSamples.size() >= MAX_SAMPLES) break;
-
-                            short maxVal = 0;
-                            int end = Math.min(i + step, processedShorts.length);
-                            for (int j = i; j < end; j++) {
-                                short absVal = (short) Math.abs(processedShorts[j]);
-                                if (absVal > maxVal) {
-                                    maxVal = absVal;
-                                }
-                            }
-
-                            double sampleTime = startTimeSec + i * sampleInterval;
-                            allSamples.add(new PCMSample(sampleTime, maxVal));
-                        }
+                    @Override
+                    public void onCancelled() {
+                        promise.reject("E_CANCELLED", "任务已取消");
                     }
-                    codec.releaseOutputBuffer(outputIndex, false);
-                    outputIndex = codec.dequeueOutputBuffer(bufferInfo, 0);
-                }
+                });
+        if (!submitted) {
+            promise.reject("E_WAVEFORM", "任务 ID 已存在: " + request.jobId);
+        }
+    }
+
+    private void emitBatchItem(WaveformRequest request, WaveformBatch batch, WaveformBatch.Item item) {
+        WritableMap event = createBatchItem(item, batch.valuesOf(item));
+        event.putString("jobId", request.jobId);
+        try {
+            getReactApplicationContext().getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_BATCH_ITEM, event);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "推送批量结果失败: " + e.getMessage());
+        }
+    }
+
+    // values 为 null 时不附带波形值
+    private WritableMap createBatchItem(WaveformBatch.Item item, float[] values) {
+        WritableMap result = Arguments.createMap();
+        result.putString("url", item.url);
+        WritableArray indices = Arguments.createArray();
+        for (int index : item.indices) {
+            indices.pushInt(index);
+        }
+        result.putArray("indices", indices);
+        result.putBoolean("cached", item.cached);
+        result.putString("mode", item.mode);
+        if (item.entry != null) {
+            result.putDouble("duration", item.entry.durationUs / 1_000_000.0);
+            if (values != null) {
+                result.putString("values", encodeValues(values));
+            }
+        } else {
+            result.putString("error", item.error != null ? item.error : "任务已取消");
+        }
+        return result;
+    }
 
-                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
-                    Log.d(TAG, "解码结束，总收集样本数:" + allSamples.size() + 
-                          ", 总耗时:" + (System.currentTimeMillis() - processStartTime) + "ms");
-                    break;
+    // 一次返回整个批次；packed 时所有文件的波形按去重后的顺序拼接为一个 float32 数组
+    private WritableMap createBatchResult(WaveformRequest request, WaveformBatch batch, boolean packed) {
+        List<WaveformBatch.Item> items = batch.getItems();
+        WritableMap result = Arguments.createMap();
+        result.putString("jobId", request.jobId);
+        result.putInt("count", batch.getInputCount());
+        result.putInt("samples", request.samples);
+        result.putString("type", request.type);
+
+        // 任一文件按 fast 计算时整体为 fast
+        String mode = "exact";
+        WritableArray itemArray = Arguments.createArray();
+        for (WaveformBatch.Item item : items) {
+            itemArray.pushMap(createBatchItem(item, null));
+            if ("fast".equals(item.mode)) mode = "fast";
+        }
+        result.putString("mode", mode);
+        result.putArray("items", itemArray);
+
+        if (packed) {
+            float[] values = new float[items.size() * request.samples];
+            for (int i = 0; i < items.size(); i++) {
+                float[] itemValues = batch.valuesOf(items.get(i));
+                if (itemValues != null) {
+                    System.arraycopy(itemValues, 0, values, i * request.samples, request.samples);
                 }
             }
+            result.putString("values", encodeValues(values));
+        }
 
-            if (isCancelled.get()) {
-                WritableMap cancelResult = Arguments.createMap();
-                cancelResult.putString("error", "任务已取消");
-                callback.invoke(cancelResult);
-                return;
+        WritableMap stats = Arguments.createMap();
+        for (Map.Entry<String, Double> entry : batch.getStats().entrySet()) {
+            stats.putDouble(entry.getKey(), entry.getValue());
+        }
+        result.putMap("stats", stats);
+        return result;
+    }
+
+    /**
+     * 从波形金字塔读取 [startSec, endSec) 范围内 points 个点的 min/max/RMS。
+     * 每个文件只完整解码一次，之后的缩放和滚动查询直接读取内存中的金字塔。
+     */
+    @ReactMethod
+    public void getWaveformRange(String url, double startSec, double endSec, int points, Promise promise) {
+        if (url == null || url.isEmpty()) {
+            promise.reject("E_WAVEFORM", "音频文件路径不能为空");
+            return;
+        }
+        int count = Math.max(1, Math.min(RANGE_MAX_POINTS, points));
+        long startUs = (long) (startSec * 1_000_000);
+        long endUs = (long) (endSec * 1_000_000);
+
+        String cacheKey = WaveformCache.keyFor(url, WaveformPyramid.MAX_BASE_BINS, "pyramid");
+        String pyramidKey = cacheKey != null ? cacheKey : "pyramid|" + url;
+        WaveformPyramid pyramid = getPyramid(pyramidKey);
+        if (pyramid != null) {
+            promise.resolve(createRangeResult(url, pyramid, startUs, endUs, count));
+            return;
+        }
+
+        String jobId = "native-" + nativeJobIds.incrementAndGet();
+        boolean submitted = scheduler.submit(jobId, pyramidKey, 0,
+                cancelled -> computePyramid(url, cacheKey, pyramidKey, cancelled),
+                new WaveformScheduler.Listener<WaveformCache.Entry>() {
+                    @Override
+                    public void onSuccess(WaveformCache.Entry entry) {
+                        WaveformPyramid built = getPyramid(pyramidKey);
+                        if (built == null) {
+                            built = WaveformPyramid.fromPacked(entry.durationUs, entry.values);
+                        }
+                        if (built == null) {
+                            promise.reject("E_WAVEFORM", "音频解析失败");
+                            return;
+                        }
+                        promise.resolve(createRangeResult(url, built, startUs, endUs, count));
+                    }
+
+                    @Override
+                    public void onError(Exception error) {
+                        String message = error instanceof WaveformException
+                                ? error.getMessage() : "音频解析失败: " + error.getMessage();
+                        promise.reject("E_WAVEFORM", message);
+                    }
+
+                    @Override
+                    public void onCancelled() {
+                        promise.reject("E_CANCELLED", "任务已取消");
+                    }
+                });
+        if (!submitted) {
+            promise.reject("E_WAVEFORM", "任务 ID 已存在: " + jobId);
+        }
+    }
+
+    private WaveformCache.Entry computePyramid(String url, String cacheKey, String pyramidKey,
+                                               AtomicBoolean cancelled) throws Exception {
+        if (cacheKey != null) {
+            WaveformCache.Entry cached = pyramidCache.get(cacheKey);
+            WaveformPyramid pyramid = cached != null
+                    ? WaveformPyramid.fromPacked(cached.durationUs, cached.values) : null;
+            if (pyramid != null) {
+                putPyramid(pyramidKey, pyramid);
+                return cached;
             }
+        }
 
-            if (allSamples.isEmpty()) {
-                WritableMap errorResult = Arguments.createMap();
-                errorResult.putString("error", "未提取到音频数据");
-                callback.invoke(errorResult);
-                return;
+        WaveformReducer reducer;
+        File file = WaveformRequest.localFile(url);
+        WavFileReader.Format wav = file != null ? WavFileReader.parse(file) : null;
+        if (wav != null && wav.durationUs() > 0) {
+            reducer = new WaveformReducer(WaveformPyramid.baseBinsFor(wav.durationUs()), wav.durationUs());
+            WavFileReader.reduce(file, wav, reducer, segmentExecutor, CodecLimits.cpuCount(), cancelled, null);
+        } else {
+            WaveformDecoder.Source source = WaveformDecoder.open(url, httpCache);
+            try {
+                reducer = new WaveformReducer(WaveformPyramid.baseBinsFor(source.durationUs), source.durationUs);
+                WaveformDecoder.decodeSegmented(source, decoderPool, reducer, CodecLimits.workerCount(),
+                        segmentExecutor, cancelled, null, null);
+            } finally {
+                source.release();
             }
+        }
+
+        if (cancelled.get()) {
+            return null;
+        }
+        if (reducer.isEmpty()) {
+            throw new WaveformException("未提取到音频数据");
+        }
+
+        WaveformPyramid pyramid = WaveformPyramid.fromReducer(reducer);
+        putPyramid(pyramidKey, pyramid);
+        WaveformCache.Entry entry = new WaveformCache.Entry(pyramid.getDurationUs(), pyramid.toPacked());
+        if (cacheKey != null) {
+            pyramidCache.put(cacheKey, entry);
+        }
+        return entry;
+    }
+
+    private WaveformPyramid getPyramid(String key) {
+        synchronized (pyramids) {
+            return pyramids.get(key);
+        }
+    }
 
-            double actualDuration = allSamples.get(allSamples.size() - 1).time - allSamples.get(0).time;
-            double timePerPoint = actualDuration / samples;
-            
-            // 添加关键调试信息
-            Log.d(TAG, "=== 波形生成调试信息 ===");
-            Log.d(TAG, "总样本数:" + allSamples.size());
-            Log.d(TAG, "第一个样本时间:" + String.format("%.3f", allSamples.get(0).time) + "秒");
-            Log.d(TAG, "最后一个样本时间:" + String.format("%.3f", allSamples.get(allSamples.size() - 1).time) + "秒");
-            Log.d(TAG, "实际时长:" + String.format("%.3f", actualDuration) + "秒");
-            Log.d(TAG, "每个点时间间隔:" + String.format("%.6f", timePerPoint) + "秒");
-            Log.d(TAG, "目标生成点数:" + samples);
-            
-            // 显示最后几个样本的值，确认是否真的静音
-            Log.d(TAG, "最后10个样本的值:");
-            for (int i = Math.max(0, allSamples.size() - 10); i < allSamples.size(); i++) {
-                PCMSample sample = allSamples.get(i);
-                Log.d(TAG, "样本" + i + " - 时间:" + String.format("%.3f", sample.time) + "s, 值:" + sample.value);
+    private void putPyramid(String key, WaveformPyramid pyramid) {
+        synchronized (pyramids) {
+            pyramids.put(key, pyramid);
+            Iterator<WaveformPyramid> it = pyramids.values().iterator();
+            while (pyramids.size() > PYRAMID_MAX_MEMORY_ENTRIES && it.hasNext()) {
+                it.next();
+                it.remove();
             }
+        }
+    }
 
-            WritableArray arr = Arguments.createArray();
-            int sampleIndex = 0;
-            int totalSamples = allSamples.size();
+    private WritableMap createRangeResult(String url, WaveformPyramid pyramid, long startUs, long endUs, int points) {
+        WaveformPyramid.Range range = pyramid.query(startUs, endUs, points);
+        WritableMap result = Arguments.createMap();
+        result.putString("url", url);
+        result.putDouble("duration", pyramid.getDurationUs() / 1_000_000.0);
+        result.putDouble("start", range.startUs / 1_000_000.0);
+        result.putDouble("end", range.endUs / 1_000_000.0);
+        result.putInt("points", points);
+        result.putInt("level", range.level);
+        result.putDouble("binDuration", range.binDurationUs / 1_000_000.0);
+        result.putString("min", encodeFloats(range.min));
+        result.putString("max", encodeFloats(range.max));
+        result.putString("rms", encodeFloats(range.rms));
+        return result;
+    }
 
-            for (int i = 0; i < samples; i++) {
-                double startTime = allSamples.get(0).time + i * timePerPoint;
-                double endTime = startTime + timePerPoint;
+    private WritableMap createError(String jobId, String message) {
+        WritableMap errorResult = Arguments.createMap();
+        errorResult.putString("jobId", jobId);
+        errorResult.putString("error", message);
+        return errorResult;
+    }
 
-                if (sampleIndex >= totalSamples) {
-                    Log.d(TAG, "区间" + i + " - sampleIndex超出范围(" + sampleIndex + ">=" + totalSamples + "), 返回0");
-                    arr.pushMap(createWaveformPoint(startTime + timePerPoint / 2, 0, i));
-                    continue;
-                }
+    private WritableMap createResult(WaveformRequest request, WaveformCache.Entry entry) {
+        long serializeStart = System.nanoTime();
+        WaveformMetrics metrics = WaveformMetrics.fromPacked(request.samples, entry.values);
+        if (metrics == null) {
+            return createError(request.jobId, "音频解析失败: 缓存数据无效");
+        }
+        long durationUs = entry.durationUs;
+        float[] values = metrics.get(request.type);
+        WritableMap result = Arguments.createMap();
+        result.putString("jobId", request.jobId);
+        result.putString("format", request.format);
+        result.putDouble("duration", durationUs / 1_000_000.0);
+        result.putInt("samples", values.length);
+        result.putString("type", request.type);
+        result.putString("mode", request.mode);
+
+        if ("points".equals(request.format)) {
+            double timePerPoint = durationUs / 1_000_000.0 / values.length;
+            WritableArray arr = Arguments.createArray();
+            for (int i = 0; i < values.length; i++) {
+                arr.pushMap(createWaveformPoint(i * timePerPoint + timePerPoint / 2, values[i], i));
+            }
+            result.putArray("data", arr);
+        } else {
+            // time 和 index 可由序号和时长推导，只传输紧凑的 float32 数组
+            result.putString("values", encodeValues(values));
+        }
 
-                // 记录区间开始前的sampleIndex
-                int startSampleIndex = sampleIndex;
-                while (sampleIndex < totalSamples && allSamples.get(sampleIndex).time < startTime) {
-                    sampleIndex++;
+        if (!request.metrics.isEmpty()) {
+            result.putMap("metrics", createMetricsMap(request.metrics, metrics, -1));
+            if (request.channelMetrics()) {
+                WritableArray channels = Arguments.createArray();
+                for (int c = 0; c < metrics.getChannelCount(); c++) {
+                    channels.pushMap(createMetricsMap(request.metrics, metrics, c));
                 }
+                result.putArray("channels", channels);
+            }
+        }
 
-                List<Short> intervalSamples = new ArrayList<>();
-                int collectedCount = 0;
-                while (sampleIndex < totalSamples) {
-                    PCMSample sample = allSamples.get(sampleIndex);
-                    if (sample.time >= endTime) break;
-                    intervalSamples.add(sample.value);
-                    sampleIndex++;
-                    collectedCount++;
-                }
+        if (entry.stats != null) {
+            entry.stats.recordSerialize(System.nanoTime() - serializeStart);
+            if (request.stats) {
+                result.putMap("stats", toWritableMap(entry.stats.toMap()));
+            }
+        }
+        return result;
+    }
 
-                // 添加调试日志
-                if (i % 50 == 0 || i >= samples - 10 || intervalSamples.size() == 0) {
-                    Log.d(TAG, "区间" + i + " - 时间[" + String.format("%.3f", startTime) + "," + String.format("%.3f", endTime) + 
-                          "], sampleIndex从" + startSampleIndex + "到" + sampleIndex + 
-                          ", 收集样本数:" + collectedCount + ", 区间样本数:" + intervalSamples.size());
-                }
+    private static WritableMap toWritableMap(Map<String, Object> values) {
+        WritableMap map = Arguments.createMap();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Number) {
+                map.putDouble(entry.getKey(), ((Number) value).doubleValue());
+            } else {
+                map.putString(entry.getKey(), String.valueOf(value));
+            }
+        }
+        return map;
+    }
+
+    // 合并请求共享同一份统计，只汇总一次
+    private void recordStats(JobStats stats) {
+        if (stats == null || !stats.markRecorded()) return;
+        Map<String, Object> snapshot = stats.toMap();
+        synchronized (recentStats) {
+            totalStats.add(stats);
+            recentStats.addLast(snapshot);
+            while (recentStats.size() > RECENT_STATS_SIZE) {
+                recentStats.removeFirst();
+            }
+        }
+        if (DebugLog.enabled) Log.d(TAG, "作业统计 - " + snapshot);
+    }
 
-                double value = calculateWaveformValue(intervalSamples, waveformType);
-                
-                // 添加值调试
-                if (i % 50 == 0 || i >= samples - 10) {
-                    Log.d(TAG, "区间" + i + " - 计算值:" + String.format("%.6f", value));
+    /**
+     * 累计统计（totals）、最近 20 个作业的统计（recent）以及解码器池状态（decoders）。
+     */
+    @ReactMethod
+    public void getStats(Promise promise) {
+        WritableMap result = Arguments.createMap();
+        WritableArray recent = Arguments.createArray();
+        synchronized (recentStats) {
+            result.putMap("totals", toWritableMap(totalStats.toTotalsMap()));
+            for (Map<String, Object> stats : recentStats) {
+                recent.pushMap(toWritableMap(stats));
+            }
+        }
+        result.putArray("recent", recent);
+        WritableMap decoders = Arguments.createMap();
+        decoders.putInt("idle", decoderPool.idleCount());
+        decoders.putInt("inUse", decoderPool.inUseCount());
+        result.putMap("decoders", decoders);
+        promise.resolve(result);
+    }
+
+    /**
+     * 开始实时录音波形：按 interval 毫秒一个区间归约麦克风输入，通过 AudioWaveformLive 事件推送新完成的区间。
+     * 设置 output 时同时写入 WAV 文件，停止后直接由该文件生成与 getWaveform 一致的波形并写入缓存。
+     * 需要应用已获得 RECORD_AUDIO 权限。
+     */
+    @ReactMethod
+    public void startLiveWaveform(ReadableMap options, Promise promise) {
+        if (getReactApplicationContext().checkSelfPermission(Manifest.permission.RECORD_AUDIO)
+                != PackageManager.PERMISSION_GRANTED) {
+            promise.reject("E_PERMISSION", "未授予录音权限");
+            return;
+        }
+        int sampleRate = options.hasKey("sampleRate") ? options.getInt("sampleRate") : LIVE_DEFAULT_SAMPLE_RATE;
+        int channels = options.hasKey("channels") && options.getInt("channels") == 2 ? 2 : 1;
+        int intervalMs = options.hasKey("interval")
+                ? Math.max(10, options.getInt("interval")) : LIVE_DEFAULT_INTERVAL_MS;
+        long updateIntervalMs = options.hasKey("updateInterval")
+                ? Math.max(16, options.getInt("updateInterval")) : LIVE_DEFAULT_UPDATE_INTERVAL_MS;
+        String type = options.hasKey("type") ? options.getString("type") : "amplitude";
+        int samples = options.hasKey("samples") ? options.getInt("samples") : 200;
+        String output = options.hasKey("output") && !options.isNull("output") ? options.getString("output") : null;
+        File file = output != null ? new File(output.startsWith("file://") ? output.substring(7) : output) : null;
+
+        LiveWaveformRecorder recorder;
+        synchronized (liveLock) {
+            if (liveRecorder != null) {
+                promise.reject("E_LIVE", "实时录音已在进行中");
+                return;
+            }
+            try {
+                if (file != null && file.getParentFile() != null) {
+                    file.getParentFile().mkdirs();
                 }
-                
-                arr.pushMap(createWaveformPoint(startTime + timePerPoint / 2, value, i));
+                recorder = new LiveWaveformRecorder(sampleRate, channels, intervalMs, type, updateIntervalMs,
+                        file, liveListener);
+                recorder.start();
+            } catch (WaveformException e) {
+                promise.reject("E_LIVE", e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                promise.reject("E_LIVE", "录音启动失败: " + e.getMessage());
+                return;
             }
+            liveRecorder = recorder;
+            liveSamples = samples;
+            liveType = type;
+        }
 
-            WritableMap result = Arguments.createMap();
-            result.putArray("data", arr);
-            callback.invoke(result);
+        WritableMap result = Arguments.createMap();
+        result.putInt("sampleRate", recorder.getSampleRate());
+        result.putInt("channels", recorder.getChannelCount());
+        result.putDouble("interval", recorder.getIntervalUs() / 1_000_000.0);
+        promise.resolve(result);
+    }
 
-        } catch (Exception e) {
-            WritableMap errorResult = Arguments.createMap();
-            errorResult.putString("error", "音频解析失败: " + e.getMessage());
-            callback.invoke(errorResult);
-        } finally {
-            if (extractor != null) {
-                try { extractor.release(); } catch (Exception ignored) {}
+    /**
+     * 停止实时录音，resolve 全部区间的波形值；写了 WAV 文件时附带该文件的完整波形（waveform）。
+     */
+    @ReactMethod
+    public void stopLiveWaveform(Promise promise) {
+        LiveWaveformRecorder recorder;
+        int samples;
+        String type;
+        synchronized (liveLock) {
+            recorder = liveRecorder;
+            samples = liveSamples;
+            type = liveType;
+            liveRecorder = null;
+        }
+        if (recorder == null) {
+            promise.reject("E_LIVE", "没有正在进行的实时录音");
+            return;
+        }
+        try {
+            recorder.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            promise.reject("E_LIVE", "停止录音被中断");
+            return;
+        }
+
+        Exception error = recorder.getError();
+        if (error != null && recorder.getBucketCount() == 0) {
+            promise.reject("E_LIVE", "实时录音失败: " + error.getMessage());
+            return;
+        }
+        WritableMap result = createLiveResult(recorder, type);
+        File file = recorder.getOutput();
+        if (file == null || recorder.getDurationUs() <= 0) {
+            promise.resolve(result);
+            return;
+        }
+
+        // 录音文件是未压缩的 WAV，与 getWaveform 走相同的读取和缓存路径，按帧序号归约，结果与以相同参数
+        // getWaveform 完全一致并写入缓存。单独开一个线程执行，不在调度器中排在其他作业之后
+        WaveformRequest request = WaveformRequest.forLocalFile(file.getAbsolutePath(), samples, type,
+                "live-" + nativeJobIds.incrementAndGet());
+        new Thread(() -> {
+            try {
+                WaveformCache.Entry entry = computeWaveform(request, request.jobKey(), new AtomicBoolean());
+                result.putMap("waveform", createResult(request, entry));
+                recordStats(entry.stats);
+            } catch (Exception e) {
+                String message = e instanceof WaveformException
+                        ? e.getMessage() : "音频解析失败: " + e.getMessage();
+                result.putMap("waveform", createError(request.jobId, message));
             }
-            if (codec != null) {
-                try { codec.stop(); codec.release(); } catch (Exception ignored) {}
+            promise.resolve(result);
+        }, "AudioWaveform-LiveSummary").start();
+    }
+
+    private final LiveWaveformRecorder.Listener liveListener = new LiveWaveformRecorder.Listener() {
+        @Override
+        public void onUpdate(LiveWaveformRecorder recorder, int fromBucket, int toBucket, float level) {
+            WritableMap event = Arguments.createMap();
+            event.putInt("startIndex", fromBucket);
+            event.putInt("endIndex", toBucket);
+            WritableArray values = Arguments.createArray();
+            for (float value : recorder.getValues(fromBucket, toBucket)) {
+                values.pushDouble(Math.min(1.0, Math.max(0.0, value)));
             }
-            isProcessing.set(false);
-            isCancelled.set(false);
+            event.putArray("values", values);
+            event.putDouble("level", Math.min(1.0, level));
+            event.putDouble("duration", recorder.getDurationUs() / 1_000_000.0);
+            emitLive(event);
+        }
+
+        @Override
+        public void onError(LiveWaveformRecorder recorder, Exception error) {
+            WritableMap event = Arguments.createMap();
+            event.putString("error", "实时录音失败: " + error.getMessage());
+            emitLive(event);
+        }
+    };
+
+    private void emitLive(WritableMap event) {
+        try {
+            getReactApplicationContext().getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_LIVE, event);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "推送实时波形失败: " + e.getMessage());
+        }
+    }
+
+    private static WritableMap createLiveResult(LiveWaveformRecorder recorder, String type) {
+        WritableMap result = Arguments.createMap();
+        File file = recorder.getOutput();
+        if (file != null) {
+            result.putString("url", file.getAbsolutePath());
+        }
+        result.putDouble("duration", recorder.getDurationUs() / 1_000_000.0);
+        result.putDouble("interval", recorder.getIntervalUs() / 1_000_000.0);
+        result.putInt("sampleRate", recorder.getSampleRate());
+        result.putInt("channels", recorder.getChannelCount());
+        result.putString("type", type);
+        result.putString("values", encodeValues(recorder.getValues(0, recorder.getBucketCount())));
+        if (recorder.getError() != null) {
+            result.putString("error", "实时录音失败: " + recorder.getError().getMessage());
+        }
+        return result;
+    }
+
+    // 开启后输出解码过程的调试日志，默认关闭
+    @ReactMethod
+    public void setDebugLogging(boolean enabled) {
+        DebugLog.enabled = enabled;
+    }
+
+    private static WritableMap createMetricsMap(List<String> names, WaveformMetrics metrics, int channel) {
+        WritableMap map = Arguments.createMap();
+        for (String name : names) {
+            float[] values = metrics.get(channel, name);
+            map.putString(name, WaveformMetrics.isSigned(name) ? encodeFloats(values) : encodeValues(values));
+        }
+        return map;
+    }
+
+    private static String encodeValues(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float value : values) {
+            buffer.putFloat(Math.min(1f, Math.max(0f, value)));
         }
+        return Base64.encodeToString(buffer.array(), Base64.NO_WRAP);
+    }
+
+    // 不做截断，用于带符号的 min/max
+    private static String encodeFloats(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return Base64.encodeToString(buffer.array(), Base64.NO_WRAP);
     }
 
     private WritableMap createWaveformPoint(double time, double value, int index) {
@@ -304,71 +852,69 @@ public class AudioWaveformModule extends ReactContextBaseJavaModule {
         return point;
     }
 
-    private double calculateWaveformValue(List<Short> samples, String type) {
-        if (samples.isEmpty()) return 0;
-
+    /**
+     * 预先创建指定 MIME 类型（如 audio/mp4a-latm、audio/mpeg）的解码器，可在应用启动时调用，
+     * 之后的首次解码省去创建实例的开销。resolve 实际新建的实例数。
+     */
+    @ReactMethod
+    public void prewarm(ReadableArray mimeTypes, Promise promise) {
+        List<String> mimes = new ArrayList<>();
+        for (int i = 0; i < mimeTypes.size(); i++) {
+            if (!mimeTypes.isNull(i)) mimes.add(mimeTypes.getString(i));
+        }
         try {
-            switch (type) {
-                case "peak":
-                    short max = 0;
-                    for (short s : samples) {
-                        short absVal = (short) Math.abs(s);
-                        if (absVal > max) max = absVal;
-                    }
-                    double peak = max / MAX_AMPLITUDE;
-                    return (peak < SILENCE_THRESHOLD) ? 0 : peak;
-
-                case "rms":
-                    long sumSquares = 0;
-                    for (short s : samples) {
-                        int absVal = Math.abs(s);
-                        sumSquares += (long) absVal * absVal;
-                    }
-                    double rms = Math.sqrt(sumSquares / (double) samples.size());
-                    double rmsNorm = rms / MAX_AMPLITUDE;
-                    return (rmsNorm < SILENCE_THRESHOLD) ? 0 : rmsNorm;
-
-                case "logarithmic":
-                    long sum = 0;
-                    for (short s : samples) {
-                        sum += Math.abs(s);
-                    }
-                    double avg = sum / (double) samples.size();
-                    double logVal = Math.log10(1 + avg) / Math.log10(1 + MAX_AMPLITUDE);
-                    return (logVal < SILENCE_THRESHOLD) ? 0 : logVal;
-
-                case "amplitude":
-                default:
-                    long sumAmplitude = 0;
-                    for (short s : samples) {
-                        sumAmplitude += Math.abs(s);
-                    }
-                    double avgAmp = (sumAmplitude / (double) samples.size()) / MAX_AMPLITUDE;
-                    return (avgAmp < SILENCE_THRESHOLD) ? 0 : avgAmp;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "计算波形值异常: " + e.getMessage());
-            return 0;
+            segmentExecutor.execute(() -> promise.resolve(decoderPool.prewarm(mimes)));
+        } catch (RuntimeException e) {
+            promise.reject("E_WAVEFORM", "预热解码器失败: " + e.getMessage());
         }
     }
 
+    // 取消全部任务
     @ReactMethod
     public void cancel() {
-        isCancelled.set(true);
-        isProcessing.set(false);
+        modeScheduler.cancelAll();
+        scheduler.cancelAll();
+    }
+
+    @ReactMethod
+    public void cancelJob(String jobId) {
+        if (!modeScheduler.cancel(jobId)) {
+            scheduler.cancel(jobId);
+        }
     }
 
     @ReactMethod
     public void isProcessing(Promise promise) {
-        promise.resolve(isProcessing.get());
+        promise.resolve(modeScheduler.isBusy() || scheduler.isBusy());
+    }
+
+    // NativeEventEmitter 需要的方法
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(Integer count) {
+    }
+
+    @ReactMethod
+    public void getCacheStats(Promise promise) {
+        WritableMap stats = Arguments.createMap();
+        for (Map.Entry<String, Long> entry : cache.getStats().entrySet()) {
+            stats.putDouble(entry.getKey(), entry.getValue());
+        }
+        stats.putDouble("httpBytes", httpCache.getDiskBytes());
+        promise.resolve(stats);
     }
 
-    private static class PCMSample {
-        double time;
-        short value;
-        PCMSample(double time, short value) {
-            this.time = time;
-            this.value = value;
+    @ReactMethod
+    public void clearCache(Promise promise) {
+        cache.clear();
+        pyramidCache.clear();
+        httpCache.clear();
+        synchronized (pyramids) {
+            pyramids.clear();
         }
+        promise.resolve(null);
     }
 }
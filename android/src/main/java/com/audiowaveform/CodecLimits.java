@@ -0,0 +1,56 @@
+package com.audiowaveform;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.util.Log;
+
+/**
+ * 设备解码能力相关的并发上限。
+ */
+public final class CodecLimits {
+
+    private static final String TAG = "AudioWaveform";
+    private static final int FALLBACK_INSTANCES = 2;
+
+    private static volatile int maxDecoderInstances = -1;
+
+    private CodecLimits() {}
+
+    /**
+     * 所有音频解码器中最小的 maxSupportedInstances，保守估计可同时创建的解码器数量。
+     */
+    public static int maxDecoderInstances() {
+        int cached = maxDecoderInstances;
+        if (cached > 0) return cached;
+
+        int limit = Integer.MAX_VALUE;
+        try {
+            MediaCodecInfo[] infos = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+            for (MediaCodecInfo info : infos) {
+                if (info.isEncoder()) continue;
+                for (String type : info.getSupportedTypes()) {
+                    if (!type.startsWith("audio/")) continue;
+                    int instances = info.getCapabilitiesForType(type).getMaxSupportedInstances();
+                    if (instances > 0) limit = Math.min(limit, instances);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取解码器能力失败: " + e.getMessage());
+        }
+
+        cached = limit == Integer.MAX_VALUE ? FALLBACK_INSTANCES : limit;
+        maxDecoderInstances = cached;
+        return cached;
+    }
+
+    public static int cpuCount() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * 后台任务并发数：不超过 CPU 核数，也不超过可用解码器实例数。
+     */
+    public static int workerCount() {
+        return Math.max(1, Math.min(cpuCount(), maxDecoderInstances()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.audiowaveform;
+
+/**
+ * 调试日志开关，默认关闭。解码路径上的日志先判断开关，关闭时不做字符串拼接。
+ */
+final class DebugLog {
+
+    static volatile boolean enabled = false;
+
+    private DebugLog() {}
+}
@@ -0,0 +1,373 @@
+package com.audiowaveform;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 跨任务复用的 MediaCodec 解码器池。
+ * 空闲解码器按 MIME + 格式（采样率、声道数、codec specific data）区分：格式相同时 flush 后直接复用，
+ * 只有 MIME 相同时重新 configure；空闲超时的实例会被释放，总数不超过设备可同时创建的解码器数量。
+ */
+public class DecoderPool {
+
+    private static final String TAG = "AudioWaveform";
+    private static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+    // 实例数已达上限时等待归还期间检查任务是否已取消的间隔
+    private static final long CANCEL_POLL_MS = 200;
+    // reserve 的结果
+    private static final int RESERVED = 0;
+    private static final int FULL = 1;
+    private static final int RETRY = 2;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 借出的解码器，使用完毕后交还给 {@link #release} 或 {@link #discard}。
+     */
+    public static final class Lease {
+        public final MediaCodec codec;
+        // 是否为复用的实例；复用实例出错时调用方可换新实例重试
+        public final boolean reused;
+        final String mime;
+        final String key;
+
+        Lease(MediaCodec codec, String mime, String key, boolean reused) {
+            this.codec = codec;
+            this.mime = mime;
+            this.key = key;
+            this.reused = reused;
+        }
+    }
+
+    private static final class Idle {
+        final MediaCodec codec;
+        final String mime;
+        // 当前配置对应的格式，预热的实例尚未配置，为 null
+        final String key;
+        final long sinceMs;
+
+        Idle(MediaCodec codec, String mime, String key, long sinceMs) {
+            this.codec = codec;
+            this.mime = mime;
+            this.key = key;
+            this.sinceMs = sinceMs;
+        }
+    }
+
+    private final int capacity;
+    private final long idleTimeoutMs;
+    private final ScheduledExecutorService evictor;
+
+    // 以下状态均由 this 保护；idle 按归还时间排列，头部为最久未使用
+    private final LinkedList<Idle> idle = new LinkedList<>();
+    private int inUse = 0;
+    private boolean closed = false;
+
+    public DecoderPool(int capacity) {
+        this(capacity, DEFAULT_IDLE_TIMEOUT_MS);
+    }
+
+    public DecoderPool(int capacity, long idleTimeoutMs) {
+        this.capacity = Math.max(1, capacity);
+        this.idleTimeoutMs = idleTimeoutMs;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "AudioWaveform-DecoderPool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.evictor = executor;
+    }
+
+    /**
+     * 借出一个已按 format 配置并启动的解码器，优先复用空闲实例。
+     * 实例数已达上限时排队等待其他调用方交还，只有任务被取消或池已关闭时才抛出 IOException。
+     *
+     * @param cancelled 可为 null
+     */
+    public Lease acquire(MediaFormat format, AtomicBoolean cancelled) throws IOException {
+        return acquire(format, true, cancelled);
+    }
+
+    /**
+     * 与 {@link #acquire} 相同，但实例数已达上限时立即返回 null（如分段解码时按可用实例数分段）。
+     */
+    public Lease tryAcquire(MediaFormat format) throws IOException {
+        return acquire(format, false, null);
+    }
+
+    private Lease acquire(MediaFormat format, boolean wait, AtomicBoolean cancelled) throws IOException {
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        String key = keyFor(format);
+        while (true) {
+            Idle candidate = takeIdle(mime, key);
+            if (candidate == null) {
+                int reserved = reserve(wait, cancelled);
+                if (reserved == RESERVED) return createLease(format);
+                if (reserved == FULL) return null;
+                // 有实例被交还，重新查找可复用的空闲实例
+                continue;
+            }
+            try {
+                if (key.equals(candidate.key)) {
+                    candidate.codec.flush();
+                } else if (candidate.key == null) {
+                    candidate.codec.configure(format, null, null, 0);
+                    candidate.codec.start();
+                } else {
+                    WaveformDecoder.reconfigureCodec(candidate.codec, format);
+                }
+                return new Lease(candidate.codec, mime, key, true);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                // 空闲实例已不可用，释放后继续尝试
+                Log.w(TAG, "复用解码器失败: " + e.getMessage());
+                discardCodec(candidate.codec);
+            }
+        }
+    }
+
+    /**
+     * 借出一个新创建的解码器，不复用空闲实例（复用实例出错后重试时使用）。实例数已达上限时同样等待。
+     */
+    public Lease acquireFresh(MediaFormat format, AtomicBoolean cancelled) throws IOException {
+        while (reserve(true, cancelled) != RESERVED) {
+            // 等待期间有实例被交还，重新尝试占用名额
+        }
+        return createLease(format);
+    }
+
+    /**
+     * 为新实例占用一个名额，必要时释放最久未使用的空闲实例。
+     * 借出的实例已达上限时：wait 为 false 返回 FULL；否则等待交还后返回 RETRY，
+     * 等待期间任务被取消或池被关闭时抛出 IOException。
+     */
+    private int reserve(boolean wait, AtomicBoolean cancelled) throws IOException {
+        List<MediaCodec> evicted = new ArrayList<>();
+        int result = RETRY;
+        IOException error = null;
+        synchronized (this) {
+            while (inUse + idle.size() >= capacity && !idle.isEmpty()) {
+                evicted.add(idle.removeFirst().codec);
+            }
+            if (inUse < capacity) {
+                inUse++;
+                result = RESERVED;
+            } else if (!wait) {
+                result = FULL;
+            } else if (closed) {
+                error = new IOException("解码器池已关闭");
+            } else if (cancelled != null && cancelled.get()) {
+                error = new InterruptedIOException("等待解码器时任务已取消");
+            } else {
+                try {
+                    // 取消标志不会唤醒等待，定期醒来检查
+                    wait(CANCEL_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = new InterruptedIOException("等待解码器时被中断");
+                }
+            }
+        }
+        for (MediaCodec codec : evicted) {
+            WaveformDecoder.releaseCodec(codec);
+        }
+        if (error != null) throw error;
+        return result;
+    }
+
+    // 用已占用的名额创建新实例
+    private Lease createLease(MediaFormat format) throws IOException {
+        try {
+            return new Lease(WaveformDecoder.createCodec(format), format.getString(MediaFormat.KEY_MIME),
+                    keyFor(format), false);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                inUse--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 交还正常使用完的解码器。超出容量或池已关闭时直接释放。
+     */
+    public void release(Lease lease) {
+        boolean pooled = false;
+        synchronized (this) {
+            inUse--;
+            if (!closed && inUse + idle.size() < capacity) {
+                idle.addLast(new Idle(lease.codec, lease.mime, lease.key, SystemClock.elapsedRealtime()));
+                pooled = true;
+            }
+            notifyAll();
+        }
+        if (pooled) {
+            scheduleEviction();
+        } else {
+            WaveformDecoder.releaseCodec(lease.codec);
+        }
+    }
+
+    /**
+     * 交还出错的解码器（如抛出 MediaCodec.CodecException），直接释放，不再复用。
+     */
+    public void discard(Lease lease) {
+        discardCodec(lease.codec);
+    }
+
+    /**
+     * 预先创建指定 MIME 的解码器实例（不配置），首次解码时省去创建实例的开销。
+     *
+     * @return 实际新建的实例数
+     */
+    public int prewarm(List<String> mimeTypes) {
+        int created = 0;
+        for (String mime : mimeTypes) {
+            synchronized (this) {
+                if (closed || inUse + idle.size() >= capacity || hasIdle(mime)) continue;
+            }
+            MediaCodec codec;
+            try {
+                codec = MediaCodec.createDecoderByType(mime);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "预热解码器失败 " + mime + ": " + e.getMessage());
+                continue;
+            }
+            boolean pooled = false;
+            synchronized (this) {
+                if (!closed && inUse + idle.size() < capacity) {
+                    idle.addLast(new Idle(codec, mime, null, SystemClock.elapsedRealtime()));
+                    pooled = true;
+                }
+            }
+            if (pooled) {
+                created++;
+            } else {
+                codec.release();
+            }
+        }
+        if (created > 0) scheduleEviction();
+        return created;
+    }
+
+    public synchronized int idleCount() {
+        return idle.size();
+    }
+
+    public synchronized int inUseCount() {
+        return inUse;
+    }
+
+    /**
+     * 释放全部空闲实例；借出中的实例在交还时释放。
+     */
+    public void shutdown() {
+        List<MediaCodec> codecs = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            for (Idle entry : idle) codecs.add(entry.codec);
+            idle.clear();
+            // 唤醒等待名额的调用方
+            notifyAll();
+        }
+        evictor.shutdownNow();
+        for (MediaCodec codec : codecs) {
+            WaveformDecoder.releaseCodec(codec);
+        }
+    }
+
+    // 优先取格式完全相同的实例，其次取 MIME 相同的实例（最近归还的优先）
+    private synchronized Idle takeIdle(String mime, String key) {
+        if (closed) return null;
+        Idle sameMime = null;
+        for (Iterator<Idle> it = idle.descendingIterator(); it.hasNext(); ) {
+            Idle entry = it.next();
+            if (key.equals(entry.key)) {
+                it.remove();
+                inUse++;
+                return entry;
+            }
+            if (sameMime == null && mime.equals(entry.mime)) {
+                sameMime = entry;
+            }
+        }
+        if (sameMime != null) {
+            idle.remove(sameMime);
+            inUse++;
+        }
+        return sameMime;
+    }
+
+    private boolean hasIdle(String mime) {
+        for (Idle entry : idle) {
+            if (mime.equals(entry.mime)) return true;
+        }
+        return false;
+    }
+
+    private void discardCodec(MediaCodec codec) {
+        WaveformDecoder.releaseCodec(codec);
+        synchronized (this) {
+            inUse--;
+            notifyAll();
+        }
+    }
+
+    private void scheduleEviction() {
+        try {
+            evictor.schedule(this::evictIdle, idleTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ignored) {
+            // 已关闭
+        }
+    }
+
+    private void evictIdle() {
+        List<MediaCodec> evicted = new ArrayList<>();
+        long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            while (!idle.isEmpty() && now - idle.getFirst().sinceMs >= idleTimeoutMs) {
+                evicted.add(idle.removeFirst().codec);
+            }
+        }
+        for (MediaCodec codec : evicted) {
+            WaveformDecoder.releaseCodec(codec);
+        }
+        if (!evicted.isEmpty() && DebugLog.enabled) {
+            Log.d(TAG, "释放空闲解码器 " + evicted.size() + " 个");
+        }
+    }
+
+    // 格式相同的解码器可以 flush 后直接复用；codec specific data 按完整字节比较，不能只比较哈希
+    private static String keyFor(MediaFormat format) {
+        StringBuilder key = new StringBuilder(format.getString(MediaFormat.KEY_MIME));
+        key.append('|').append(format.getInteger(MediaFormat.KEY_SAMPLE_RATE));
+        key.append('|').append(format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+        for (int i = 0; i < 3; i++) {
+            String name = "csd-" + i;
+            if (!format.containsKey(name)) break;
+            key.append('|');
+            ByteBuffer csd = format.getByteBuffer(name);
+            if (csd == null) continue;
+            // 从 position 到 limit 的内容，不改变原缓冲区的位置
+            ByteBuffer bytes = csd.duplicate();
+            while (bytes.hasRemaining()) {
+                int b = bytes.get() & 0xFF;
+                key.append(HEX[b >>> 4]).append(HEX[b & 0x0F]);
+            }
+        }
+        return key.toString();
+    }
+}
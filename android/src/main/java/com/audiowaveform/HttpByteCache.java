@@ -0,0 +1,400 @@
+package com.audiowaveform;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 远程文件的磁盘字节缓存：每个 URL 对应一个与远程文件等长的稀疏数据文件和一个记录已下载块的索引文件，
+ * 已下载的块在多次请求、同一文件的多个读取方之间共享。占用按已缓存的块计算，
+ * 超出上限时按最近使用时间淘汰未在使用的文件。占用在内存中随写入、核对和删除累计，
+ * 只在首次使用和 clear() 时扫描缓存目录。只依赖 JDK，可在普通 JVM 上运行。
+ */
+public class HttpByteCache {
+
+    public static final int BLOCK_SIZE = 64 * 1024;
+    // 已缓存的文件距上次与服务器核对超过此时长后，再次打开时重新核对
+    public static final long DEFAULT_REVALIDATE_INTERVAL_MS = 5 * 60_000;
+
+    private static final int MAGIC = 0x41574842; // "AWHB"
+    private static final int VERSION = 2;
+    private static final String DATA_SUFFIX = ".data";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final File directory;
+    private final long maxDiskBytes;
+    private final long revalidateIntervalMs;
+    // 正在使用的资源，同一 URL 的读取方共用一个实例；由 this 保护
+    private final Map<String, Resource> open = new HashMap<>();
+    // 未在使用的文件及其占用，按释放时间排列，头部为最久未使用；由 this 保护
+    private final LinkedHashMap<String, Long> closed = new LinkedHashMap<>();
+    private boolean indexed = false;
+    // 所有已登记文件的占用之和，打开中的资源在写入块、核对时直接累加
+    private final AtomicLong diskBytes = new AtomicLong();
+
+    /**
+     * 一个远程文件的缓存数据。所有方法都是线程安全的。
+     */
+    public static final class Resource {
+        final String key;
+        private final File dataFile;
+        private final File indexFile;
+        private final RandomAccessFile data;
+        // 所属缓存的占用总计
+        private final AtomicLong diskBytes;
+        private long length = -1;
+        // 服务器返回的 ETag 或 Last-Modified，没有时为空串
+        private String validator = "";
+        // 上次与服务器核对大小和校验值的时间（System.currentTimeMillis）
+        private long validatedAt = 0;
+        private BitSet blocks = new BitSet();
+        // 已缓存的块的实际字节数
+        private long cachedBytes = 0;
+        // 索引文件的大小
+        private long indexBytes = 0;
+        // 远程文件变化时递增，变化前建立的连接读到的块不再写入
+        private long generation = 0;
+        private boolean dirty = false;
+        // 由 HttpByteCache 保护
+        private int refs = 0;
+
+        /**
+         * @param accountedBytes 该文件已计入 diskBytes 的占用，按实际读到的索引修正
+         */
+        Resource(String key, File dataFile, File indexFile, AtomicLong diskBytes, long accountedBytes)
+                throws IOException {
+            this.key = key;
+            this.dataFile = dataFile;
+            this.indexFile = indexFile;
+            this.diskBytes = diskBytes;
+            loadIndex();
+            indexBytes = indexFile.length();
+            data = new RandomAccessFile(dataFile, "rw");
+            if (length >= 0 && data.length() != length) {
+                // 数据文件与索引不一致，丢弃已缓存的块
+                blocks.clear();
+                cachedBytes = 0;
+                data.setLength(length);
+                dirty = true;
+            }
+            dataFile.setLastModified(System.currentTimeMillis());
+            diskBytes.addAndGet(getDiskBytes() - accountedBytes);
+        }
+
+        public synchronized String getValidator() {
+            return validator;
+        }
+
+        public synchronized long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        // 已缓存的块加索引文件的占用
+        synchronized long getDiskBytes() {
+            return cachedBytes + indexBytes;
+        }
+
+        /**
+         * 距上次核对已超过 intervalMs 时返回 true，并把本次视为已核对，并发打开的其他读取方不再重复核对。
+         */
+        public synchronized boolean beginRevalidation(long intervalMs) {
+            long now = System.currentTimeMillis();
+            if (length < 0 || now - validatedAt < intervalMs) return false;
+            validatedAt = now;
+            dirty = true;
+            return true;
+        }
+
+        // 文件大小，尚未从服务器获取时为 -1
+        public synchronized long getLength() {
+            return length;
+        }
+
+        public synchronized int getBlockCount() {
+            return length < 0 ? -1 : (int) ((length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        }
+
+        public synchronized long getGeneration() {
+            return generation;
+        }
+
+        public synchronized boolean hasBlock(int block) {
+            return blocks.get(block);
+        }
+
+        /**
+         * 用服务器返回的文件大小和校验值核对缓存。大小或校验值不一致说明远程文件已变化，清空已缓存的块。
+         */
+        public synchronized void validate(long length, String validator) throws IOException {
+            String value = validator != null ? validator : "";
+            boolean sameValidator = value.isEmpty() || this.validator.isEmpty() || value.equals(this.validator);
+            validatedAt = System.currentTimeMillis();
+            dirty = true;
+            if (length == this.length && sameValidator) {
+                if (this.validator.isEmpty() && !value.isEmpty()) {
+                    this.validator = value;
+                }
+                return;
+            }
+            blocks.clear();
+            diskBytes.addAndGet(-cachedBytes);
+            cachedBytes = 0;
+            generation++;
+            this.length = length;
+            this.validator = value;
+            data.setLength(length);
+            dirty = true;
+        }
+
+        /**
+         * 从 position 开始读取已缓存的连续字节，position 所在的块尚未缓存时返回 0。
+         */
+        public synchronized int read(long position, byte[] buffer, int offset, int size) throws IOException {
+            int read = 0;
+            while (read < size) {
+                long current = position + read;
+                if (current >= length) break;
+                int block = (int) (current / BLOCK_SIZE);
+                if (!blocks.get(block)) break;
+                long blockEnd = Math.min(length, (long) (block + 1) * BLOCK_SIZE);
+                int count = (int) Math.min(size - read, blockEnd - current);
+                data.seek(current);
+                data.readFully(buffer, offset + read, count);
+                read += count;
+            }
+            return read;
+        }
+
+        /**
+         * 写入完整的一块并标记为已缓存。generation 与当前不一致时（远程文件已变化）丢弃。
+         */
+        public synchronized void writeBlock(long generation, int block, byte[] buffer, int size) throws IOException {
+            if (generation != this.generation) return;
+            data.seek((long) block * BLOCK_SIZE);
+            data.write(buffer, 0, size);
+            if (!blocks.get(block)) {
+                blocks.set(block);
+                cachedBytes += size;
+                diskBytes.addAndGet(size);
+            }
+            dirty = true;
+        }
+
+        synchronized void close() {
+            try {
+                saveIndex();
+            } catch (IOException ignored) {
+                // 索引写入失败只会导致下次重新下载
+            }
+            try {
+                data.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private void loadIndex() {
+            if (!indexFile.isFile()) return;
+            try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+                long storedLength = in.readLong();
+                String storedValidator = in.readUTF();
+                long storedValidatedAt = in.readLong();
+                long storedCachedBytes = in.readLong();
+                long[] words = new long[in.readInt()];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = in.readLong();
+                }
+                length = storedLength;
+                validator = storedValidator;
+                validatedAt = storedValidatedAt;
+                cachedBytes = storedCachedBytes;
+                blocks = BitSet.valueOf(words);
+            } catch (IOException | RuntimeException e) {
+                length = -1;
+                validator = "";
+                validatedAt = 0;
+                cachedBytes = 0;
+                blocks = new BitSet();
+            }
+        }
+
+        private void saveIndex() throws IOException {
+            if (!dirty) return;
+            File tmp = new File(indexFile.getPath() + ".tmp");
+            long[] words = blocks.toLongArray();
+            long written;
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(length);
+                out.writeUTF(validator);
+                out.writeLong(validatedAt);
+                out.writeLong(cachedBytes);
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+                written = out.size();
+            }
+            if (!tmp.renameTo(indexFile)) {
+                tmp.delete();
+                throw new IOException("写入缓存索引失败");
+            }
+            diskBytes.addAndGet(written - indexBytes);
+            indexBytes = written;
+            dirty = false;
+        }
+    }
+
+    public HttpByteCache(File directory, long maxDiskBytes) {
+        this(directory, maxDiskBytes, DEFAULT_REVALIDATE_INTERVAL_MS);
+    }
+
+    /**
+     * @param revalidateIntervalMs 已缓存的文件再次打开时与服务器核对的最小间隔，0 表示每次打开都核对
+     */
+    public HttpByteCache(File directory, long maxDiskBytes, long revalidateIntervalMs) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.revalidateIntervalMs = revalidateIntervalMs;
+    }
+
+    public long getRevalidateIntervalMs() {
+        return revalidateIntervalMs;
+    }
+
+    /**
+     * 取得 url 的缓存数据，使用完毕需 {@link #release}。
+     */
+    public synchronized Resource acquire(String url) throws IOException {
+        String key = WaveformCache.sha1(url);
+        Resource resource = open.get(key);
+        if (resource == null) {
+            ensureIndexed();
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("无法创建缓存目录: " + directory);
+            }
+            Long accounted = closed.remove(key);
+            try {
+                resource = new Resource(key, new File(directory, key + DATA_SUFFIX),
+                        new File(directory, key + INDEX_SUFFIX), diskBytes, accounted != null ? accounted : 0);
+            } catch (IOException e) {
+                if (accounted != null) closed.put(key, accounted);
+                throw e;
+            }
+            open.put(key, resource);
+        }
+        resource.refs++;
+        return resource;
+    }
+
+    /**
+     * 最后一个读取方释放时保存索引并关闭文件，然后按容量上限淘汰。
+     */
+    public synchronized void release(Resource resource) {
+        if (--resource.refs > 0) return;
+        open.remove(resource.key);
+        resource.close();
+        resource.dataFile.setLastModified(System.currentTimeMillis());
+        closed.put(resource.key, resource.getDiskBytes());
+        trim();
+    }
+
+    /**
+     * 删除所有缓存，正在读取的文件除外。
+     */
+    public synchronized void clear() {
+        ensureIndexed();
+        for (long bytes : closed.values()) {
+            diskBytes.addAndGet(-bytes);
+        }
+        closed.clear();
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (!open.containsKey(keyOf(file))) {
+                file.delete();
+            }
+        }
+    }
+
+    // 缓存占用的字节数：数据文件是预先设置了长度的稀疏文件，只计算已缓存的块，另加索引文件
+    public synchronized long getDiskBytes() {
+        ensureIndexed();
+        return diskBytes.get();
+    }
+
+    // 按最近使用时间淘汰未在使用的文件，直到占用不超过上限
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = closed.entrySet().iterator();
+        while (diskBytes.get() > maxDiskBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            delete(eldest.getKey());
+            diskBytes.addAndGet(-eldest.getValue());
+            it.remove();
+        }
+    }
+
+    // 首次使用时扫描缓存目录，读取各索引头登记已有文件的占用，按修改时间恢复使用顺序
+    private void ensureIndexed() {
+        if (indexed) return;
+        indexed = true;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(DATA_SUFFIX));
+        if (files == null) return;
+        long[] modified = new long[files.length];
+        for (int i = 0; i < files.length; i++) modified[i] = files[i].lastModified();
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+        for (int i : order) {
+            String key = keyOf(files[i]);
+            long cached = readCachedBytes(key);
+            if (cached < 0) {
+                // 没有可用索引的数据文件无法再读取
+                delete(key);
+                continue;
+            }
+            long bytes = cached + new File(directory, key + INDEX_SUFFIX).length();
+            closed.put(key, bytes);
+            diskBytes.addAndGet(bytes);
+        }
+        trim();
+    }
+
+    private void delete(String key) {
+        new File(directory, key + DATA_SUFFIX).delete();
+        new File(directory, key + INDEX_SUFFIX).delete();
+    }
+
+    // 从索引头读取已缓存的字节数，索引不存在或无效时返回 -1
+    private long readCachedBytes(String key) {
+        File indexFile = new File(directory, key + INDEX_SUFFIX);
+        if (!indexFile.isFile()) return -1;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return -1;
+            in.readLong();
+            in.readUTF();
+            in.readLong();
+            return in.readLong();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static String keyOf(File file) {
+        String name = file.getName();
+        int dot = name.indexOf('.');
+        return dot >= 0 ? name.substring(0, dot) : name;
+    }
+}
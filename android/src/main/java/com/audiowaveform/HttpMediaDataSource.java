@@ -0,0 +1,32 @@
+package com.audiowaveform;
+
+import android.media.MediaDataSource;
+import java.io.IOException;
+
+/**
+ * 把 {@link HttpRangeReader} 提供给 MediaExtractor：远程文件边下载边解析，已下载的部分在多次请求间复用。
+ * 需在 extractor 释放后调用 {@link #close()}。
+ */
+public class HttpMediaDataSource extends MediaDataSource {
+
+    private final HttpRangeReader reader;
+
+    public HttpMediaDataSource(HttpByteCache cache, String url) throws IOException {
+        reader = new HttpRangeReader(cache, url, HttpRangeReader.DEFAULT_READ_AHEAD_BYTES);
+    }
+
+    @Override
+    public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        return reader.readAt(position, buffer, offset, size);
+    }
+
+    @Override
+    public long getSize() {
+        return reader.getSize();
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+}
@@ -0,0 +1,294 @@
+package com.audiowaveform;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * 通过 HTTP Range 请求按块读取远程文件，下载的块写入 {@link HttpByteCache}，之后的读取直接命中缓存。
+ * 每个请求最多覆盖 readAheadBytes（遇到已缓存的块提前结束），连接中的数据按读取需要逐块取出，
+ * 因此可以边下载边解析；跳转或取消时最多浪费一个预读窗口。连接中断时从当前块重新请求。
+ * 已缓存的文件在打开时按 {@link HttpByteCache#getRevalidateIntervalMs()} 的间隔用条件请求与服务器核对，
+ * 文件变化时丢弃旧块。
+ * 只依赖 JDK，可在普通 JVM 上运行。
+ */
+public class HttpRangeReader implements Closeable {
+
+    public static final int DEFAULT_READ_AHEAD_BYTES = 1024 * 1024;
+
+    private static final int BLOCK_SIZE = HttpByteCache.BLOCK_SIZE;
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 服务器返回了错误状态码，不再重试。
+     */
+    static final class StatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StatusException(int code) {
+            super("HTTP " + code);
+        }
+    }
+
+    private final HttpByteCache cache;
+    private final HttpByteCache.Resource resource;
+    private final String url;
+    private final int readAheadBlocks;
+    private final byte[] blockBuffer = new byte[BLOCK_SIZE];
+
+    // 当前连接，以下状态由 this 保护
+    private HttpURLConnection connection;
+    private InputStream stream;
+    // 连接中下一块的序号和连接覆盖范围的结束块（不含）
+    private int streamBlock;
+    private int streamEndBlock;
+    private long streamGeneration;
+    // 服务器忽略 Range 返回 200 时只能从头顺序读取
+    private boolean rangeSupported = true;
+    private boolean closed = false;
+
+    /**
+     * 文件大小未缓存时会立即请求第一块以获取大小；已缓存且到了核对间隔时先与服务器核对。
+     */
+    public HttpRangeReader(HttpByteCache cache, String url, int readAheadBytes) throws IOException {
+        this.cache = cache;
+        this.url = url;
+        this.readAheadBlocks = Math.max(1, readAheadBytes / BLOCK_SIZE);
+        this.resource = cache.acquire(url);
+        try {
+            if (resource.getLength() < 0) {
+                fetchBlock(0);
+            } else if (resource.beginRevalidation(cache.getRevalidateIntervalMs())) {
+                revalidate();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public long getSize() {
+        return resource.getLength();
+    }
+
+    /**
+     * 读取 [position, position + size) 内从 position 开始的连续字节，至少返回 1 字节；超出文件末尾返回 -1。
+     */
+    public synchronized int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+        if (closed) {
+            throw new IOException("数据源已关闭");
+        }
+        long length = resource.getLength();
+        if (position >= length) return -1;
+        if (size <= 0) return 0;
+        size = (int) Math.min(size, length - position);
+
+        int read = resource.read(position, buffer, offset, size);
+        if (read > 0) return read;
+
+        fetchBlock((int) (position / BLOCK_SIZE));
+        read = resource.read(position, buffer, offset, size);
+        if (read <= 0) {
+            throw new IOException("远程文件已变化: " + url);
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        closeStream();
+        cache.release(resource);
+    }
+
+    // 用只请求第一个字节的条件请求核对文件是否变化；网络不可用时继续使用已缓存的数据
+    private void revalidate() throws IOException {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            conn.setReadTimeout(READ_TIMEOUT_MS);
+            conn.setRequestProperty("Range", "bytes=0-0");
+            conn.setRequestProperty("Accept-Encoding", "identity");
+            String cached = resource.getValidator();
+            if (isEntityTag(cached)) {
+                conn.setRequestProperty("If-None-Match", cached);
+            } else if (!cached.isEmpty()) {
+                conn.setRequestProperty("If-Modified-Since", cached);
+            }
+            int code = conn.getResponseCode();
+            long total;
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return;
+            } else if (code == HttpURLConnection.HTTP_PARTIAL) {
+                total = parseContentRange(conn.getHeaderField("Content-Range"))[1];
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                total = conn.getContentLengthLong();
+            } else {
+                throw new StatusException(code);
+            }
+            if (total <= 0) {
+                throw new IOException("无法获取远程文件大小: " + url);
+            }
+            String validator = conn.getHeaderField("ETag");
+            if (validator == null) validator = conn.getHeaderField("Last-Modified");
+            resource.validate(total, validator);
+        } catch (StatusException e) {
+            throw e;
+        } catch (IOException ignored) {
+            // 离线时仍可读取已缓存的块，下一次到期再核对
+        } finally {
+            if (conn != null) conn.disconnect();
+        }
+    }
+
+    // ETag 形如 "abc" 或 W/"abc"，否则是 Last-Modified 日期
+    private static boolean isEntityTag(String validator) {
+        return validator.startsWith("\"") || validator.startsWith("W/");
+    }
+
+    // 确保 target 块已缓存
+    private void fetchBlock(int target) throws IOException {
+        IOException failure = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                if (!canContinue(target)) {
+                    openStream(target);
+                }
+                while (stream != null && streamBlock <= target) {
+                    readNextBlock();
+                }
+                if (!resource.hasBlock(target)) {
+                    throw new IOException("远程文件已变化: " + url);
+                }
+                return;
+            } catch (StatusException e) {
+                closeStream();
+                throw e;
+            } catch (IOException e) {
+                closeStream();
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    // 当前连接能否顺序读到 target：支持 Range 时只允许向前跳过预读窗口内的少量块
+    private boolean canContinue(int target) {
+        if (stream == null || target < streamBlock || target >= streamEndBlock) return false;
+        return !rangeSupported || target - streamBlock < readAheadBlocks;
+    }
+
+    private void openStream(int target) throws IOException {
+        closeStream();
+        int blockCount = resource.getBlockCount();
+        int end = target + 1;
+        while (end < target + readAheadBlocks && (blockCount < 0 || end < blockCount) && !resource.hasBlock(end)) {
+            end++;
+        }
+        long start = (long) target * BLOCK_SIZE;
+        long last = (long) end * BLOCK_SIZE - 1;
+        if (resource.getLength() >= 0) {
+            last = Math.min(last, resource.getLength() - 1);
+        }
+
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setRequestProperty("Range", "bytes=" + start + "-" + last);
+        // 压缩传输会让字节偏移失效
+        conn.setRequestProperty("Accept-Encoding", "identity");
+        try {
+            int code = conn.getResponseCode();
+            long total;
+            int first;
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                long[] range = parseContentRange(conn.getHeaderField("Content-Range"));
+                if (range[0] != start) {
+                    throw new IOException("Content-Range 与请求不符: " + conn.getHeaderField("Content-Range"));
+                }
+                total = range[1];
+                first = target;
+                rangeSupported = true;
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                total = conn.getContentLengthLong();
+                first = 0;
+                rangeSupported = false;
+            } else {
+                throw new StatusException(code);
+            }
+            if (total <= 0) {
+                throw new IOException("无法获取远程文件大小: " + url);
+            }
+
+            String validator = conn.getHeaderField("ETag");
+            if (validator == null) validator = conn.getHeaderField("Last-Modified");
+            resource.validate(total, validator);
+
+            stream = conn.getInputStream();
+            connection = conn;
+            streamGeneration = resource.getGeneration();
+            streamBlock = first;
+            streamEndBlock = rangeSupported ? Math.min(end, resource.getBlockCount()) : resource.getBlockCount();
+        } catch (IOException | RuntimeException e) {
+            conn.disconnect();
+            throw e;
+        }
+    }
+
+    private void readNextBlock() throws IOException {
+        long start = (long) streamBlock * BLOCK_SIZE;
+        int size = (int) Math.min(BLOCK_SIZE, resource.getLength() - start);
+        int read = 0;
+        while (read < size) {
+            int count = stream.read(blockBuffer, read, size - read);
+            if (count < 0) {
+                throw new EOFException("连接提前结束: " + url);
+            }
+            read += count;
+        }
+        resource.writeBlock(streamGeneration, streamBlock, blockBuffer, size);
+        streamBlock++;
+        if (streamBlock >= streamEndBlock) {
+            closeStream();
+        }
+    }
+
+    private void closeStream() {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+            stream = null;
+        }
+        if (connection != null) {
+            connection.disconnect();
+            connection = null;
+        }
+    }
+
+    // "bytes 0-65535/1234567" -> {0, 1234567}
+    private static long[] parseContentRange(String header) throws IOException {
+        if (header != null && header.startsWith("bytes ")) {
+            int dash = header.indexOf('-');
+            int slash = header.indexOf('/');
+            if (dash > 6 && slash > dash) {
+                try {
+                    long first = Long.parseLong(header.substring(6, dash).trim());
+                    String total = header.substring(slash + 1).trim();
+                    return new long[]{first, "*".equals(total) ? -1 : Long.parseLong(total)};
+                } catch (NumberFormatException ignored) {
+                    // 按格式错误处理
+                }
+            }
+        }
+        throw new IOException("无效的 Content-Range: " + header);
+    }
+}
@@ -0,0 +1,145 @@
+package com.audiowaveform;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个波形作业各阶段的耗时和数据量。分段并行解码时多个线程同时累加，字段均为原子类型。
+ * 只依赖 JDK，可在普通 JVM 上运行。
+ */
+public final class JobStats {
+
+    // decoder：MediaCodec 解码；pcm：WAV/裸 PCM 直接读取；cache：缓存命中
+    private volatile String source = "decoder";
+
+    private final AtomicLong extractorSetupNanos = new AtomicLong();
+    private final AtomicLong codecSetupNanos = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong reduceNanos = new AtomicLong();
+    private final AtomicLong serializeNanos = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong bytesDecoded = new AtomicLong();
+    private final AtomicLong samplesDecoded = new AtomicLong();
+    // 阶段边界采样到的已用堆相对作业开始时的最大增量，不是真实峰值
+    private final AtomicLong heapDeltaBytes = new AtomicLong();
+    private final AtomicLong jobs = new AtomicLong();
+
+    private final long heapBaseline;
+    private final AtomicBoolean recorded = new AtomicBoolean(false);
+
+    public JobStats() {
+        heapBaseline = usedHeap();
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public void addExtractorSetup(long nanos) {
+        extractorSetupNanos.addAndGet(nanos);
+    }
+
+    public void addCodecSetup(long nanos) {
+        codecSetupNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @param decodeNanos 解码循环耗时（不含归约）
+     * @param reduceNanos 归约耗时
+     * @param bytes       解码输出的 PCM 字节数
+     * @param samples     解码输出的样本数（所有声道）
+     */
+    public void addDecode(long decodeNanos, long reduceNanos, long bytes, long samples) {
+        this.decodeNanos.addAndGet(decodeNanos);
+        this.reduceNanos.addAndGet(reduceNanos);
+        bytesDecoded.addAndGet(bytes);
+        samplesDecoded.addAndGet(samples);
+        sampleHeap();
+    }
+
+    /**
+     * 记录生成结果的耗时。合并请求的每个回调各生成一次结果，只记录第一次，使统计对应一次作业。
+     */
+    public void recordSerialize(long nanos) {
+        serializeNanos.compareAndSet(0, Math.max(1, nanos));
+    }
+
+    public void setTotal(long nanos) {
+        totalNanos.set(nanos);
+        sampleHeap();
+    }
+
+    /**
+     * 采样当前已用 Java 堆相对作业开始时的增量，保留最大值。只在阶段边界采样，
+     * 其间的 GC 和其他线程的分配都会影响结果，不能当作作业的内存峰值。
+     */
+    public void sampleHeap() {
+        long delta = usedHeap() - heapBaseline;
+        long max;
+        do {
+            max = heapDeltaBytes.get();
+        } while (delta > max && !heapDeltaBytes.compareAndSet(max, delta));
+    }
+
+    /**
+     * 首次调用返回 true，用于合并请求的多个回调只汇总一次。
+     */
+    public boolean markRecorded() {
+        return recorded.compareAndSet(false, true);
+    }
+
+    /**
+     * 累加另一个作业的统计（用于 getStats 的总计），堆增量取最大值。
+     */
+    public void add(JobStats other) {
+        extractorSetupNanos.addAndGet(other.extractorSetupNanos.get());
+        codecSetupNanos.addAndGet(other.codecSetupNanos.get());
+        decodeNanos.addAndGet(other.decodeNanos.get());
+        reduceNanos.addAndGet(other.reduceNanos.get());
+        serializeNanos.addAndGet(other.serializeNanos.get());
+        totalNanos.addAndGet(other.totalNanos.get());
+        bytesDecoded.addAndGet(other.bytesDecoded.get());
+        samplesDecoded.addAndGet(other.samplesDecoded.get());
+        long delta = other.heapDeltaBytes.get();
+        if (delta > heapDeltaBytes.get()) heapDeltaBytes.set(delta);
+        jobs.incrementAndGet();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("source", source);
+        map.put("extractorSetupMs", millis(extractorSetupNanos));
+        map.put("codecSetupMs", millis(codecSetupNanos));
+        map.put("decodeMs", millis(decodeNanos));
+        map.put("reduceMs", millis(reduceNanos));
+        map.put("serializeMs", millis(serializeNanos));
+        map.put("totalMs", millis(totalNanos));
+        map.put("bytesDecoded", (double) bytesDecoded.get());
+        map.put("samplesDecoded", (double) samplesDecoded.get());
+        long workNanos = decodeNanos.get() + reduceNanos.get();
+        map.put("samplesPerSec", workNanos > 0 ? samplesDecoded.get() * 1e9 / workNanos : 0.0);
+        map.put("heapDeltaBytes", (double) heapDeltaBytes.get());
+        return map;
+    }
+
+    /**
+     * 作为总计使用时的统计，附带作业数。
+     */
+    public Map<String, Object> toTotalsMap() {
+        Map<String, Object> map = toMap();
+        map.remove("source");
+        map.put("jobs", (double) jobs.get());
+        return map;
+    }
+
+    private static double millis(AtomicLong nanos) {
+        return nanos.get() / 1_000_000.0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
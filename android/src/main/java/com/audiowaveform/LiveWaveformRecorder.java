@@ -0,0 +1,391 @@
+package com.audiowaveform;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 实时录音波形：录音线程只用 AudioRecord 采集 16 位 PCM，放入预先分配的有界环形缓冲区；
+ * 处理线程从缓冲区取出数据，写入 WAV 文件、按固定时长的区间归约并推送更新，文件写入或事件推送变慢不会阻塞采集。
+ * 归约使用与文件解码相同的 {@link WaveformReducer}，缓冲区和样本数组在整个录音过程中复用。
+ */
+public class LiveWaveformRecorder {
+
+    private static final String TAG = "AudioWaveform";
+    // 每次读取约 20ms 的数据，不小于 AudioRecord 的最小缓冲区
+    private static final int READ_MS = 20;
+    // AudioRecord 内部缓冲区为单次读取量的倍数，录音线程短暂被抢占时不丢数据
+    private static final int RECORD_BUFFER_READS = 4;
+    // 环形缓冲区可容纳的录音时长，处理线程落后超过这个时长时丢弃新数据并在处理时补静音
+    private static final int RING_MS = 2000;
+
+    interface Listener {
+        // 在处理线程上调用，[fromBucket, toBucket) 为新完成的区间，level 为最近一个区间的峰值
+        void onUpdate(LiveWaveformRecorder recorder, int fromBucket, int toBucket, float level);
+
+        void onError(LiveWaveformRecorder recorder, Exception error);
+    }
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final int bucketFrames;
+    private final long intervalUs;
+    private final String type;
+    private final long updateIntervalMs;
+    private final File output;
+    private final Listener listener;
+
+    private final AudioRecord record;
+    private final Ring ring;
+    // 录音线程在缓冲区已满时读入的位置，数据随即丢弃
+    private final ByteBuffer overflow;
+    // 补静音用的全零数据
+    private final ByteBuffer silence;
+    private final PcmReader reader;
+    // 只有一个区间的归约器，每完成一个区间取值后清空复用
+    private final WaveformReducer reducer;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private Thread captureThread;
+    private Thread processThread;
+
+    // 以下状态由 this 保护
+    private float[] values = new float[1024];
+    private int bucketCount = 0;
+    private long totalFrames = 0;
+    private Exception error;
+
+    // 以下状态只在处理线程上访问
+    private int framesInBucket = 0;
+    private float lastLevel = 0;
+
+    /**
+     * 录音线程与处理线程之间的单生产者、单消费者环形缓冲区，槽位预先分配，稳态下不产生分配。
+     * 已满时录音线程丢弃新数据，丢弃的字节数记在下一个写入的槽位上，处理时在该槽位之前补静音。
+     */
+    private static final class Ring {
+        final ByteBuffer[] slots;
+        final int[] sizes;
+        // 每个槽位之前丢弃的字节数
+        final long[] gaps;
+        // 以下状态由 this 保护
+        private long written = 0;
+        private long read = 0;
+        private long pendingGap = 0;
+        private boolean closed = false;
+
+        Ring(int count, int slotBytes) {
+            slots = new ByteBuffer[count];
+            sizes = new int[count];
+            gaps = new long[count];
+            for (int i = 0; i < count; i++) {
+                slots[i] = ByteBuffer.allocateDirect(slotBytes).order(ByteOrder.nativeOrder());
+            }
+        }
+
+        // 下一个可写入的槽位，已满时返回 null
+        synchronized ByteBuffer writeSlot() {
+            return written - read < slots.length ? slots[(int) (written % slots.length)] : null;
+        }
+
+        synchronized void commitWrite(int size) {
+            int index = (int) (written % slots.length);
+            sizes[index] = size;
+            gaps[index] = pendingGap;
+            pendingGap = 0;
+            written++;
+            notifyAll();
+        }
+
+        synchronized void drop(int size) {
+            pendingGap += size;
+        }
+
+        // 等待下一个已写入的槽位，关闭且已读完时返回 -1
+        synchronized int readSlot() throws InterruptedException {
+            while (written == read && !closed) {
+                wait();
+            }
+            return written == read ? -1 : (int) (read % slots.length);
+        }
+
+        synchronized void commitRead() {
+            read++;
+        }
+
+        // 最后一个槽位之后丢弃的字节数，关闭后调用
+        synchronized long takeTrailingGap() {
+            long gap = pendingGap;
+            pendingGap = 0;
+            return gap;
+        }
+
+        synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @param intervalMs       每个波形区间的时长
+     * @param type             区间取值的波形类型
+     * @param updateIntervalMs 推送更新的最小间隔
+     * @param output           写入的 WAV 文件，为 null 时不写文件
+     */
+    LiveWaveformRecorder(int sampleRate, int channelCount, int intervalMs, String type, long updateIntervalMs,
+                         File output, Listener listener) throws WaveformException {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.type = type;
+        this.updateIntervalMs = updateIntervalMs;
+        this.output = output;
+        this.listener = listener;
+        this.bucketFrames = (int) Math.max(1, (long) sampleRate * intervalMs / 1000);
+        this.intervalUs = bucketFrames * 1_000_000L / sampleRate;
+
+        int channelMask = channelCount == 2 ? AudioFormat.CHANNEL_IN_STEREO : AudioFormat.CHANNEL_IN_MONO;
+        int minBuffer = AudioRecord.getMinBufferSize(sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBuffer <= 0) {
+            throw new WaveformException("不支持的录音参数 - 采样率:" + sampleRate + ", 声道数:" + channelCount);
+        }
+        int frameSize = channelCount * 2;
+        int readBytes = Math.max(minBuffer, sampleRate * READ_MS / 1000 * frameSize);
+        readBytes -= readBytes % frameSize;
+
+        record = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, channelMask,
+                AudioFormat.ENCODING_PCM_16BIT, readBytes * RECORD_BUFFER_READS);
+        if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+            record.release();
+            throw new WaveformException("录音初始化失败");
+        }
+        ring = new Ring(Math.max(2, RING_MS / READ_MS), readBytes);
+        overflow = ByteBuffer.allocateDirect(readBytes).order(ByteOrder.nativeOrder());
+        silence = ByteBuffer.allocateDirect(readBytes).order(ByteOrder.nativeOrder());
+        reader = new PcmReader(PcmReader.ENCODING_PCM_16BIT, channelCount);
+        reducer = new WaveformReducer(1, intervalUs);
+    }
+
+    public void start() {
+        try {
+            record.startRecording();
+        } catch (IllegalStateException e) {
+            record.release();
+            throw e;
+        }
+        running.set(true);
+        processThread = new Thread(this::process, "AudioWaveform-LiveProcess");
+        captureThread = new Thread(this::capture, "AudioWaveform-Live");
+        processThread.start();
+        captureThread.start();
+    }
+
+    /**
+     * 停止录音并等待两个线程结束，返回后缓冲区中的数据已处理完、WAV 文件已写完。
+     */
+    public void stop() throws InterruptedException {
+        running.set(false);
+        if (captureThread != null) {
+            captureThread.join();
+        }
+        if (processThread != null) {
+            processThread.join();
+        }
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public long getIntervalUs() {
+        return intervalUs;
+    }
+
+    public File getOutput() {
+        return output;
+    }
+
+    public synchronized int getBucketCount() {
+        return bucketCount;
+    }
+
+    public synchronized long getDurationUs() {
+        return totalFrames * 1_000_000L / sampleRate;
+    }
+
+    // [from, to) 区间的波形值
+    public synchronized float[] getValues(int from, int to) {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    // 录音线程异常退出时的错误
+    public synchronized Exception getError() {
+        return error;
+    }
+
+    // 录音线程：只读取数据放入环形缓冲区
+    private void capture() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        try {
+            while (running.get()) {
+                ByteBuffer slot = ring.writeSlot();
+                ByteBuffer target = slot != null ? slot : overflow;
+                target.clear();
+                int read = record.read(target, target.capacity());
+                if (read < 0) {
+                    throw new WaveformException("录音读取失败: " + read);
+                }
+                if (read == 0) continue;
+                if (slot != null) {
+                    ring.commitWrite(read);
+                } else {
+                    ring.drop(read);
+                }
+            }
+        } catch (Exception e) {
+            setError(e);
+        } finally {
+            running.set(false);
+            try {
+                record.stop();
+            } catch (IllegalStateException ignored) {
+                // 未成功开始录音
+            }
+            record.release();
+            ring.close();
+        }
+    }
+
+    // 处理线程：写文件、归约并推送更新，录音停止后处理完缓冲区中剩余的数据
+    private void process() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        RandomAccessFile file = null;
+        int emitted = 0;
+        long lastEmitMs = 0;
+        long droppedBytes = 0;
+        try {
+            if (output != null) {
+                file = new RandomAccessFile(output, "rw");
+                file.setLength(0);
+                WavFileReader.writePcm16Header(file.getChannel(), channelCount, sampleRate, 0);
+            }
+            FileChannel channel = file != null ? file.getChannel() : null;
+            int index;
+            while ((index = ring.readSlot()) >= 0) {
+                droppedBytes += fillSilence(ring.gaps[index], channel);
+                consume(ring.slots[index], ring.sizes[index], channel);
+                ring.commitRead();
+
+                int completed = getBucketCount();
+                long now = SystemClock.elapsedRealtime();
+                if (completed > emitted && now - lastEmitMs >= updateIntervalMs) {
+                    listener.onUpdate(this, emitted, completed, lastLevel);
+                    emitted = completed;
+                    lastEmitMs = now;
+                }
+            }
+            droppedBytes += fillSilence(ring.takeTrailingGap(), channel);
+
+            // 最后一个不完整的区间也计入结果
+            if (framesInBucket > 0) {
+                completeBucket();
+            }
+            int completed = getBucketCount();
+            if (completed > emitted) {
+                listener.onUpdate(this, emitted, completed, lastLevel);
+            }
+        } catch (Exception e) {
+            // 处理失败时同时停止录音
+            running.set(false);
+            setError(e);
+        } finally {
+            if (file != null) {
+                try {
+                    WavFileReader.writePcm16Header(file.getChannel(), channelCount, sampleRate,
+                            file.length() - WavFileReader.PCM16_HEADER_SIZE);
+                    file.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "写入录音文件失败: " + e.getMessage());
+                }
+            }
+        }
+        if (droppedBytes > 0) {
+            Log.w(TAG, "处理录音数据过慢，已补静音 " + droppedBytes / (channelCount * 2) + " 帧");
+        }
+        Exception failure = getError();
+        if (failure != null) {
+            Log.w(TAG, "实时录音失败: " + failure.getMessage());
+            listener.onError(this, failure);
+        }
+    }
+
+    // 写入 [0, size) 的数据并归约，Android 设备均为小端字节序，可直接写入 WAV
+    private void consume(ByteBuffer data, int size, FileChannel channel) throws IOException {
+        if (channel != null) {
+            data.limit(size).position(0);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+        int frames = reader.read(data, 0, size, ByteOrder.nativeOrder());
+        reduce(reader.samples(), frames);
+    }
+
+    // 缓冲区溢出时丢弃的数据按静音补上，保持时间轴和文件长度与实际录音时长一致
+    private long fillSilence(long bytes, FileChannel channel) throws IOException {
+        for (long remaining = bytes; remaining > 0; ) {
+            int size = (int) Math.min(remaining, silence.capacity());
+            consume(silence, size, channel);
+            remaining -= size;
+        }
+        return bytes;
+    }
+
+    // 只保留第一个错误
+    private synchronized void setError(Exception e) {
+        if (error == null) error = e;
+    }
+
+    // 按固定帧数切分区间，不依赖时间戳
+    private void reduce(float[] pcm, int frames) {
+        int from = 0;
+        while (from < frames) {
+            int to = Math.min(frames, from + bucketFrames - framesInBucket);
+            reducer.addFramesToBucket(0, pcm, from, to, channelCount);
+            framesInBucket += to - from;
+            from = to;
+            if (framesInBucket == bucketFrames) {
+                completeBucket();
+            }
+        }
+        synchronized (this) {
+            totalFrames += frames;
+        }
+    }
+
+    private void completeBucket() {
+        float value = (float) reducer.valueAt(0, type);
+        lastLevel = (float) reducer.valueAt(0, "peak");
+        reducer.clear();
+        framesInBucket = 0;
+        synchronized (this) {
+            if (bucketCount == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[bucketCount++] = value;
+        }
+    }
+}
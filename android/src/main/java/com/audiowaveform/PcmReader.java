@@ -0,0 +1,124 @@
+package com.audiowaveform;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 把解码器输出的 PCM 字节读成归一化（-1.0~1.0）的交错 float 样本。
+ * 样本数组在多次读取间复用，稳态下不产生任何分配。
+ */
+public final class PcmReader {
+
+    // 取值与 android.media.AudioFormat 一致，纯 Java 环境下也可使用
+    public static final int ENCODING_PCM_16BIT = 2;
+    public static final int ENCODING_PCM_8BIT = 3;
+    public static final int ENCODING_PCM_FLOAT = 4;
+    public static final int ENCODING_PCM_24BIT_PACKED = 21;
+    public static final int ENCODING_PCM_32BIT = 22;
+
+    private static final float SCALE_8BIT = 1f / 127f;
+    private static final float SCALE_16BIT = 1f / 32767f;
+    private static final float SCALE_24BIT = 1f / 8388607f;
+    private static final float SCALE_32BIT = 1f / 2147483647f;
+
+    private int encoding = ENCODING_PCM_16BIT;
+    private int channelCount = 1;
+    private int bytesPerSample = 2;
+    private float[] samples = new float[0];
+
+    public PcmReader(int encoding, int channelCount) {
+        setFormat(encoding, channelCount);
+    }
+
+    public void setFormat(int encoding, int channelCount) {
+        this.encoding = encoding;
+        this.channelCount = Math.max(1, channelCount);
+        this.bytesPerSample = bytesPerSample(encoding);
+    }
+
+    public static int bytesPerSample(int encoding) {
+        switch (encoding) {
+            case ENCODING_PCM_8BIT:
+                return 1;
+            case ENCODING_PCM_16BIT:
+                return 2;
+            case ENCODING_PCM_24BIT_PACKED:
+                return 3;
+            case ENCODING_PCM_FLOAT:
+            case ENCODING_PCM_32BIT:
+                return 4;
+            default:
+                throw new IllegalArgumentException("unsupported PCM encoding: " + encoding);
+        }
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public int getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * 最近一次 {@link #read} 的结果，长度可能大于有效样本数。
+     */
+    public float[] samples() {
+        return samples;
+    }
+
+    /**
+     * 读取 buffer 中 [offset, offset + size) 的字节，使用绝对位置访问，不修改 buffer 的 position。
+     *
+     * @return 读取的帧数
+     */
+    public int read(ByteBuffer buffer, int offset, int size, ByteOrder order) {
+        int count = size / bytesPerSample;
+        int frames = count / channelCount;
+        count = frames * channelCount;
+        if (samples.length < count) {
+            samples = new float[count];
+        }
+
+        ByteOrder previous = buffer.order();
+        buffer.order(order);
+        float[] out = samples;
+        switch (encoding) {
+            case ENCODING_PCM_8BIT:
+                for (int i = 0, p = offset; i < count; i++, p++) {
+                    out[i] = ((buffer.get(p) & 0xFF) - 128) * SCALE_8BIT;
+                }
+                break;
+            case ENCODING_PCM_16BIT:
+                for (int i = 0, p = offset; i < count; i++, p += 2) {
+                    out[i] = buffer.getShort(p) * SCALE_16BIT;
+                }
+                break;
+            case ENCODING_PCM_24BIT_PACKED:
+                boolean little = order == ByteOrder.LITTLE_ENDIAN;
+                for (int i = 0, p = offset; i < count; i++, p += 3) {
+                    int b0 = buffer.get(p) & 0xFF;
+                    int b1 = buffer.get(p + 1) & 0xFF;
+                    int b2 = buffer.get(p + 2);
+                    int value = little ? (b2 << 16) | (b1 << 8) | b0
+                            : ((b0 << 24) >> 8) | (b1 << 8) | (b2 & 0xFF);
+                    out[i] = value * SCALE_24BIT;
+                }
+                break;
+            case ENCODING_PCM_32BIT:
+                for (int i = 0, p = offset; i < count; i++, p += 4) {
+                    out[i] = buffer.getInt(p) * SCALE_32BIT;
+                }
+                break;
+            case ENCODING_PCM_FLOAT:
+                for (int i = 0, p = offset; i < count; i++, p += 4) {
+                    out[i] = buffer.getFloat(p);
+                }
+                break;
+            default:
+                break;
+        }
+        buffer.order(previous);
+        return frames;
+    }
+}
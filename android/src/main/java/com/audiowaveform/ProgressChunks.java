@@ -0,0 +1,57 @@
+package com.audiowaveform;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按订阅者切分进度片段：每个任务 ID 各自记录已发送到的区间，合并到作业上较晚的请求从第 0 个区间开始补发。
+ * 不是线程安全的，由调用方同步。
+ */
+final class ProgressChunks {
+
+    interface Sink {
+        /**
+         * 发送 [start, end) 区间的波形值，返回是否发送成功；失败时该任务的发送位置不前进。
+         */
+        boolean send(String jobId, int start, int end, double[] values);
+    }
+
+    private final WaveformReducer reducer;
+    // 任务 ID 到下一个待发送的区间
+    private final Map<String, Integer> cursors = new HashMap<>();
+
+    ProgressChunks(WaveformReducer reducer) {
+        this.reducer = reducer;
+    }
+
+    /**
+     * 向 jobIds 中请求了进度的任务发送新完成的片段，片段按各自的类型计算。
+     *
+     * @param subscribedJobs 请求了进度推送的任务 ID 及其波形类型
+     */
+    void emit(List<String> jobIds, Map<String, String> subscribedJobs, int completedBuckets, Sink sink) {
+        cursors.keySet().retainAll(jobIds);
+        // 合并到同一作业的请求可能使用不同的 type 和发送位置，相同的片段只计算一次
+        Map<String, double[]> valuesByChunk = new HashMap<>();
+        for (String jobId : jobIds) {
+            String type = subscribedJobs.get(jobId);
+            if (type == null) continue;
+            Integer cursor = cursors.get(jobId);
+            int start = cursor != null ? cursor : 0;
+            int end = Math.max(start, completedBuckets);
+            String chunkKey = type + "|" + start + "|" + end;
+            double[] chunk = valuesByChunk.get(chunkKey);
+            if (chunk == null) {
+                chunk = new double[end - start];
+                for (int i = start; i < end; i++) {
+                    chunk[i - start] = Math.min(1.0, Math.max(0.0, reducer.valueAt(i, type)));
+                }
+                valuesByChunk.put(chunkKey, chunk);
+            }
+            if (sink.send(jobId, start, end, chunk)) {
+                cursors.put(jobId, end);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.audiowaveform;
+
+/**
+ * 解码进度回调，在解码线程上调用。
+ */
+public interface ProgressListener {
+    /**
+     * @param fraction         已解码比例 0.0-1.0
+     * @param completedBuckets 该序号之前的区间已全部解码完成，可以安全读取（并行解码时为 0）
+     */
+    void onProgress(double fraction, int completedBuckets);
+}
@@ -0,0 +1,293 @@
+package com.audiowaveform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 未压缩 WAV / 裸 PCM 的快速路径：解析 RIFF 头后通过 FileChannel.map 直接读取数据块并归约，
+ * 不经过 MediaExtractor 和 MediaCodec。只依赖 JDK，可在普通 JVM 上运行。
+ */
+public final class WavFileReader {
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    // writePcm16Header 写入的文件头长度，数据块紧随其后
+    public static final int PCM16_HEADER_SIZE = 44;
+
+    // 每次从映射区读取的字节数，决定 PcmReader 复用数组的大小
+    private static final int BLOCK_BYTES = 64 * 1024;
+    // 单个映射区的上限，也是并行分块的最大长度
+    private static final long MAX_CHUNK_BYTES = 256L * 1024 * 1024;
+    // 数据量小于此值时不拆分
+    private static final long MIN_CHUNK_BYTES = 1024 * 1024;
+
+    private WavFileReader() {}
+
+    /**
+     * PCM 数据在文件中的位置和格式。
+     */
+    public static final class Format {
+        public final int encoding;
+        public final int channelCount;
+        public final int sampleRate;
+        public final long dataOffset;
+        public final long dataLength;
+
+        public Format(int encoding, int channelCount, int sampleRate, long dataOffset, long dataLength) {
+            if (channelCount <= 0 || sampleRate <= 0) {
+                throw new IllegalArgumentException("invalid PCM format");
+            }
+            this.encoding = encoding;
+            this.channelCount = channelCount;
+            this.sampleRate = sampleRate;
+            this.dataOffset = dataOffset;
+            this.dataLength = dataLength;
+        }
+
+        public int frameSize() {
+            return PcmReader.bytesPerSample(encoding) * channelCount;
+        }
+
+        public long frameCount() {
+            return dataLength / frameSize();
+        }
+
+        public long durationUs() {
+            return frameCount() * 1_000_000L / sampleRate;
+        }
+    }
+
+    /**
+     * 解析 RIFF/WAVE 头；不是 WAV 或编码不受支持时返回 null。
+     */
+    public static Format parse(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long fileSize = channel.size();
+            if (fileSize < 12) return null;
+
+            ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            if (header.getInt(0) != 0x46464952 /* RIFF */ || header.getInt(8) != 0x45564157 /* WAVE */) {
+                return null;
+            }
+
+            int encoding = -1;
+            int channels = 0;
+            int sampleRate = 0;
+            ByteBuffer chunk = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+            long position = 12;
+            while (position + 8 <= fileSize) {
+                chunk.clear().limit(8);
+                readFully(channel, chunk, position);
+                int id = chunk.getInt(0);
+                long size = chunk.getInt(4) & 0xFFFFFFFFL;
+                long body = position + 8;
+
+                if (id == 0x20746d66 /* "fmt " */) {
+                    if (size < 16) return null;
+                    chunk.clear().limit((int) Math.min(size, chunk.capacity()));
+                    readFully(channel, chunk, body);
+                    int formatTag = chunk.getShort(0) & 0xFFFF;
+                    channels = chunk.getShort(2) & 0xFFFF;
+                    sampleRate = chunk.getInt(4);
+                    int bits = chunk.getShort(14) & 0xFFFF;
+                    if (formatTag == WAVE_FORMAT_EXTENSIBLE && size >= 26) {
+                        // SubFormat GUID 的前两个字节即实际格式
+                        formatTag = chunk.getShort(24) & 0xFFFF;
+                    }
+                    encoding = encodingFor(formatTag, bits);
+                    if (encoding < 0) return null;
+                } else if (id == 0x61746164 /* "data" */) {
+                    if (encoding < 0) return null;
+                    // 流式写入的文件可能没有回填长度
+                    long available = fileSize - body;
+                    long length = size == 0 || size == 0xFFFFFFFFL ? available : Math.min(size, available);
+                    return new Format(encoding, channels, sampleRate, body, length);
+                }
+                position = body + size + (size & 1);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 裸 PCM 文件：整个文件都是交错样本。
+     */
+    public static Format raw(File file, int encoding, int channelCount, int sampleRate) {
+        return new Format(encoding, channelCount, sampleRate, 0, file.length());
+    }
+
+    /**
+     * 在文件开头写入 16 位 PCM 的标准文件头，之后写入位置不小于文件头长度。
+     * 流式写入时先以 dataLength 为 0 占位，写完数据后再回填实际长度。
+     */
+    public static void writePcm16Header(FileChannel channel, int channelCount, int sampleRate, long dataLength)
+            throws IOException {
+        int blockAlign = channelCount * 2;
+        ByteBuffer header = ByteBuffer.allocate(PCM16_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) Math.min(0xFFFFFFFFL, dataLength + PCM16_HEADER_SIZE - 8));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) WAVE_FORMAT_PCM);
+        header.putShort((short) channelCount);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) 16);
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) Math.min(0xFFFFFFFFL, dataLength));
+        header.flip();
+        long position = channel.position();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.position(Math.max(position, PCM16_HEADER_SIZE));
+    }
+
+    private static int encodingFor(int formatTag, int bits) {
+        if (formatTag == WAVE_FORMAT_IEEE_FLOAT) {
+            return bits == 32 ? PcmReader.ENCODING_PCM_FLOAT : -1;
+        }
+        if (formatTag != WAVE_FORMAT_PCM) return -1;
+        switch (bits) {
+            case 8:
+                return PcmReader.ENCODING_PCM_8BIT;
+            case 16:
+                return PcmReader.ENCODING_PCM_16BIT;
+            case 24:
+                return PcmReader.ENCODING_PCM_24BIT_PACKED;
+            case 32:
+                return PcmReader.ENCODING_PCM_32BIT;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 把数据块按帧对齐切成若干段，每段映射后归约进各自的部分结果，最后按顺序合并。
+     *
+     * @param executor 为 null 时在当前线程串行扫描
+     * @param listener 每读完一块报告一次进度，可为 null；并行扫描时 completedBuckets 为 0
+     */
+    public static void reduce(File file, Format format, WaveformReducer reducer, ExecutorService executor,
+                              int parallelism, AtomicBoolean cancelled, ProgressListener listener)
+            throws IOException, InterruptedException {
+        int frameSize = format.frameSize();
+        long totalFrames = format.frameCount();
+        if (totalFrames == 0) return;
+
+        long bytes = totalFrames * frameSize;
+        int chunks = executor == null ? 1 : (int) Math.max(1, Math.min(parallelism, bytes / MIN_CHUNK_BYTES));
+        chunks = (int) Math.max(chunks, (bytes + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long framesPerChunk = (totalFrames + chunks - 1) / chunks;
+        Progress progress = listener != null ? new Progress(totalFrames, listener) : null;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (chunks == 1 || executor == null) {
+                for (int i = 0; i < chunks && !cancelled.get(); i++) {
+                    long first = i * framesPerChunk;
+                    reduceChunk(channel, format, first, Math.min(totalFrames, first + framesPerChunk),
+                            reducer, cancelled, progress, reducer);
+                }
+                return;
+            }
+
+            WaveformReducer[] partials = new WaveformReducer[chunks];
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                final int index = i;
+                final long first = i * framesPerChunk;
+                final long end = Math.min(totalFrames, first + framesPerChunk);
+                partials[i] = reducer.emptyCopy();
+                futures.add(executor.submit(() -> {
+                    reduceChunk(channel, format, first, end, partials[index], cancelled, progress, null);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                throw new IOException(cause);
+            } finally {
+                for (Future<?> future : futures) future.cancel(true);
+            }
+
+            for (WaveformReducer partial : partials) {
+                reducer.merge(partial);
+            }
+        }
+    }
+
+    // 归约 [firstFrame, endFrame) 范围内的帧；completed 不为 null 时按它已完成的区间报告进度
+    private static void reduceChunk(FileChannel channel, Format format, long firstFrame, long endFrame,
+                                    WaveformReducer reducer, AtomicBoolean cancelled, Progress progress,
+                                    WaveformReducer completed) throws IOException {
+        if (endFrame <= firstFrame) return;
+        int frameSize = format.frameSize();
+        long start = format.dataOffset + firstFrame * frameSize;
+        long length = (endFrame - firstFrame) * frameSize;
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+        PcmReader pcm = new PcmReader(format.encoding, format.channelCount);
+        int blockBytes = Math.max(frameSize, BLOCK_BYTES / frameSize * frameSize);
+        long frame = firstFrame;
+        for (int offset = 0; offset < length && !cancelled.get(); offset += blockBytes) {
+            int size = (int) Math.min(blockBytes, length - offset);
+            int frames = pcm.read(mapped, offset, size, ByteOrder.LITTLE_ENDIAN);
+            reducer.addFramesAt(frame, pcm.samples(), 0, frames, format.channelCount, format.sampleRate);
+            frame += frames;
+            if (progress != null) {
+                int buckets = completed != null
+                        ? completed.bucketForTime(frame * 1_000_000L / format.sampleRate) : 0;
+                progress.add(frames, buckets);
+            }
+        }
+    }
+
+    // 汇总各分段已读取的帧数
+    private static final class Progress {
+        private final long totalFrames;
+        private final ProgressListener listener;
+        private final AtomicLong frames = new AtomicLong();
+
+        Progress(long totalFrames, ProgressListener listener) {
+            this.totalFrames = totalFrames;
+            this.listener = listener;
+        }
+
+        void add(int count, int completedBuckets) {
+            listener.onProgress(frames.addAndGet(count) / (double) totalFrames, completedBuckets);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("unexpected end of file");
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.audiowaveform;
+
+import android.media.MediaFormat;
+import android.os.SystemClock;
+import android.util.Log;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量生成波形：URL 去重、先查缓存，剩余文件分给若干条解码通道，
+ * 各通道从 {@link DecoderPool} 借用解码器，依次处理多个文件。
+ */
+class WaveformBatch {
+
+    private static final String TAG = "AudioWaveform";
+
+    /**
+     * 单个（去重后的）文件的结果。
+     */
+    static class Item {
+        final String url;
+        // 该 URL 在输入数组中出现的所有位置
+        final List<Integer> indices = new ArrayList<>();
+        // 实际使用的解码模式，WAV / 裸 PCM 总是 exact
+        String mode;
+        WaveformCache.Entry entry;
+        String error;
+        boolean cached;
+
+        Item(String url, String mode) {
+            this.url = url;
+            this.mode = mode;
+        }
+    }
+
+    interface ItemListener {
+        // 在解码通道线程上调用
+        void onItem(Item item);
+    }
+
+    private final WaveformRequest request;
+    private final WaveformCache cache;
+    private final DecoderPool pool;
+    private final HttpByteCache httpCache;
+    private final List<Item> items = new ArrayList<>();
+    private final int inputCount;
+
+    private final AtomicInteger decoded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private int cachedCount;
+    private long elapsedMs;
+
+    /**
+     * @param request 批量请求共用的参数（点数、类型、模式、是否使用缓存），url 字段不使用
+     */
+    WaveformBatch(List<String> urls, WaveformRequest request, WaveformCache cache, DecoderPool pool,
+                  HttpByteCache httpCache) {
+        this.request = request;
+        this.cache = cache;
+        this.pool = pool;
+        this.httpCache = httpCache;
+        this.inputCount = urls.size();
+        Map<String, Item> unique = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i);
+            Item item = unique.get(url);
+            if (item == null) {
+                item = new Item(url, request.mode);
+                unique.put(url, item);
+            }
+            item.indices.add(i);
+        }
+        items.addAll(unique.values());
+    }
+
+    List<Item> getItems() {
+        return items;
+    }
+
+    int getInputCount() {
+        return inputCount;
+    }
+
+    // 条目按请求的 type 取出的波形值，失败或取消时为 null
+    float[] valuesOf(Item item) {
+        if (item.entry == null) return null;
+        WaveformMetrics metrics = WaveformMetrics.fromPacked(request.samples, item.entry.values);
+        return metrics != null ? metrics.get(request.type) : null;
+    }
+
+    /**
+     * 处理整个批次，返回前所有条目都已有结果（或已取消）。
+     *
+     * @param lanes 解码通道数，第一条通道在当前线程执行
+     */
+    void run(ExecutorService executor, int lanes, AtomicBoolean cancelled, ItemListener listener)
+            throws InterruptedException {
+        long startMs = SystemClock.elapsedRealtime();
+        List<Item> pending = new ArrayList<>();
+        for (Item item : items) {
+            if (request.isFast() && request.isPcmInput(item.url)) {
+                item.mode = "exact";
+            }
+            String cacheKey = cacheKey(item);
+            WaveformCache.Entry entry = cacheKey != null ? cache.get(cacheKey) : null;
+            if (entry != null) {
+                item.entry = entry;
+                item.cached = true;
+                cachedCount++;
+                if (listener != null) listener.onItem(item);
+            } else {
+                pending.add(item);
+            }
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        int count = Math.max(1, Math.min(lanes, pending.size()));
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 1; i < count; i++) {
+                futures.add(executor.submit(() -> {
+                    runLane(pending, next, cancelled, listener);
+                    return null;
+                }));
+            }
+            runLane(pending, next, cancelled, listener);
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Log.w(TAG, "批量解码通道异常: " + e.getCause());
+                }
+            }
+        } finally {
+            for (Future<?> future : futures) future.cancel(true);
+        }
+        elapsedMs = SystemClock.elapsedRealtime() - startMs;
+    }
+
+    /**
+     * 本批次的统计：去重后的文件数、缓存命中数、解码数、失败数、累计解码耗时和吞吐量。
+     */
+    Map<String, Double> getStats() {
+        Map<String, Double> stats = new LinkedHashMap<>();
+        stats.put("files", (double) items.size());
+        stats.put("cached", (double) cachedCount);
+        stats.put("decoded", (double) decoded.get());
+        stats.put("failed", (double) failed.get());
+        stats.put("decodeMs", decodeNanos.get() / 1_000_000.0);
+        stats.put("elapsedMs", (double) elapsedMs);
+        stats.put("filesPerSec", elapsedMs > 0 ? items.size() * 1000.0 / elapsedMs : 0);
+        return stats;
+    }
+
+    // 一条解码通道：从共享队列领取文件，解码器从池中借出，同格式的文件之间直接复用
+    private void runLane(List<Item> pending, AtomicInteger next, AtomicBoolean cancelled, ItemListener listener) {
+        int index;
+        while (!cancelled.get() && (index = next.getAndIncrement()) < pending.size()) {
+            Item item = pending.get(index);
+            long start = System.nanoTime();
+            try {
+                item.entry = decodeItem(item, cancelled);
+                if (item.entry == null) return;
+                decoded.incrementAndGet();
+                String cacheKey = cacheKey(item);
+                if (cacheKey != null) {
+                    cache.put(cacheKey, item.entry);
+                }
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                item.error = e instanceof WaveformException
+                        ? e.getMessage() : "音频解析失败: " + e.getMessage();
+            } finally {
+                decodeNanos.addAndGet(System.nanoTime() - start);
+            }
+            if (listener != null) listener.onItem(item);
+        }
+    }
+
+    private WaveformCache.Entry decodeItem(Item item, AtomicBoolean cancelled) throws Exception {
+        String url = item.url;
+        // 未压缩 WAV 直接映射读取；批量时每个文件只用一个线程，并行度来自多条通道
+        File file = WaveformRequest.localFile(url);
+        WavFileReader.Format wav = file != null ? WavFileReader.parse(file) : null;
+        if (wav != null && wav.durationUs() > 0) {
+            WaveformReducer reducer = new WaveformReducer(request.samples, wav.durationUs(),
+                    request.trackedChannels(wav.channelCount));
+            WavFileReader.reduce(file, wav, reducer, null, 1, cancelled, null);
+            return cancelled.get() ? null : toEntry(reducer);
+        }
+
+        WaveformDecoder.Source source = WaveformDecoder.open(url, httpCache);
+        try {
+            WaveformReducer reducer = new WaveformReducer(request.samples, source.durationUs,
+                    request.trackedChannels(source.format.getInteger(MediaFormat.KEY_CHANNEL_COUNT)));
+            if ("fast".equals(item.mode)) {
+                WaveformDecoder.decodeSparse(source, pool, reducer, request.windowFrames, cancelled, null, null);
+            } else {
+                WaveformDecoder.decode(source, pool, reducer, cancelled, null, null);
+            }
+            return cancelled.get() ? null : toEntry(reducer);
+        } finally {
+            source.release();
+        }
+    }
+
+    private WaveformCache.Entry toEntry(WaveformReducer reducer) throws WaveformException {
+        if (reducer.isEmpty()) {
+            throw new WaveformException("未提取到音频数据");
+        }
+        return new WaveformCache.Entry(reducer.getDurationUs(), WaveformMetrics.fromReducer(reducer).toPacked());
+    }
+
+    private String cacheKey(Item item) {
+        return request.useCache
+                ? WaveformCache.keyFor(item.url, request.samples, request.resultVariant("fast".equals(item.mode)))
+                : null;
+    }
+}
@@ -0,0 +1,317 @@
+package com.audiowaveform;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 波形结果的两级缓存：内存热缓存 + 应用缓存目录下的二进制文件（LRU 容量上限，读取使用内存映射）。
+ * 缓存键由文件路径、大小、修改时间以及采样点数、波形类型组成，文件变化后旧条目自然失效。
+ * 对象锁只保护两个 LRU 表和字节计数，文件的写入、读取都在锁外进行，内存命中不会等待磁盘。
+ * 写入先写到唯一的临时文件，再在按键分段的锁内改名并登记到磁盘索引；删除文件也持有同一分段锁，
+ * 并确认该键未被重新登记，避免删掉并发写入的新文件。
+ */
+public class WaveformCache {
+
+    private static final int MAGIC = 0x41574643; // "AWFC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+    private static final String SUFFIX = ".wf";
+
+    private final File directory;
+    private final long maxDiskBytes;
+    private final int maxMemoryEntries;
+
+    // 访问顺序排列，头部为最久未使用
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DiskEntry> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long diskBytes = 0;
+    // 首次访问时扫描缓存目录，扫描期间只持有 indexLock
+    private final Object indexLock = new Object();
+    private volatile boolean diskIndexed = false;
+    private final AtomicLong tmpIds = new AtomicLong();
+    // 同一个键的改名、登记和删除互斥，先取分段锁再取对象锁
+    private final Object[] fileLocks = new Object[16];
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // 磁盘索引中的一个文件；按实例比较，读取失败时只移除读取前看到的那一次登记
+    private static final class DiskEntry {
+        final long bytes;
+
+        DiskEntry(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    public static class Entry {
+        public final long durationUs;
+        public final float[] values;
+        // 产生该结果的作业统计，不写入缓存
+        public final JobStats stats;
+
+        public Entry(long durationUs, float[] values) {
+            this(durationUs, values, null);
+        }
+
+        private Entry(long durationUs, float[] values, JobStats stats) {
+            this.durationUs = durationUs;
+            this.values = values;
+            this.stats = stats;
+        }
+
+        public Entry withStats(JobStats stats) {
+            return new Entry(durationUs, values, stats);
+        }
+    }
+
+    public WaveformCache(File directory, long maxDiskBytes, int maxMemoryEntries) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.maxMemoryEntries = maxMemoryEntries;
+        for (int i = 0; i < fileLocks.length; i++) {
+            fileLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * 为本地文件生成缓存键，非本地文件（网络地址、content:// 等）返回 null，表示不缓存。
+     */
+    public static String keyFor(String url, int samples, String type) {
+        String path = url.startsWith("file://") ? url.substring(7) : url;
+        File file = new File(path);
+        if (!file.isFile()) return null;
+        String identity = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified()
+                + "|" + samples + "|" + type;
+        return sha1(identity);
+    }
+
+    public Entry get(String key) {
+        DiskEntry indexed;
+        synchronized (this) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                memoryHits.incrementAndGet();
+                return entry;
+            }
+        }
+
+        ensureDiskIndex();
+        synchronized (this) {
+            indexed = disk.get(key);
+        }
+        if (indexed != null) {
+            File file = fileFor(key);
+            Entry entry = readFile(file);
+            if (entry != null) {
+                file.setLastModified(System.currentTimeMillis());
+                synchronized (this) {
+                    putMemory(key, entry);
+                }
+                diskHits.incrementAndGet();
+                return entry;
+            }
+            synchronized (fileLock(key)) {
+                boolean removed;
+                synchronized (this) {
+                    removed = disk.remove(key, indexed);
+                    if (removed) diskBytes -= indexed.bytes;
+                }
+                if (removed) file.delete();
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, Entry entry) {
+        synchronized (this) {
+            putMemory(key, entry);
+        }
+
+        ensureDiskIndex();
+        File file = fileFor(key);
+        File tmp = new File(directory, key + "." + tmpIds.incrementAndGet() + ".tmp");
+        try {
+            writeFile(tmp, entry);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+
+        long bytes = HEADER_SIZE + entry.values.length * 4L;
+        List<String> evicted;
+        synchronized (fileLock(key)) {
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                return;
+            }
+            synchronized (this) {
+                DiskEntry previous = disk.put(key, new DiskEntry(bytes));
+                diskBytes += bytes - (previous != null ? previous.bytes : 0);
+                evicted = trimDisk();
+            }
+        }
+        deleteFiles(evicted);
+    }
+
+    public void clear() {
+        ensureDiskIndex();
+        List<String> removed;
+        synchronized (this) {
+            memory.clear();
+            removed = new ArrayList<>(disk.keySet());
+            disk.clear();
+            diskBytes = 0;
+        }
+        deleteFiles(removed);
+    }
+
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("memoryEntries", (long) memory.size());
+        stats.put("diskEntries", (long) disk.size());
+        stats.put("diskBytes", diskBytes);
+        return stats;
+    }
+
+    private void putMemory(String key, Entry entry) {
+        memory.put(key, entry);
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memory.size() > maxMemoryEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    // 按 LRU 顺序移出超出容量的条目，返回需要在锁外删除的文件对应的键
+    private List<String> trimDisk() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, DiskEntry>> it = disk.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && it.hasNext()) {
+            Map.Entry<String, DiskEntry> eldest = it.next();
+            evicted.add(eldest.getKey());
+            diskBytes -= eldest.getValue().bytes;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+        return evicted;
+    }
+
+    // 删除已移出索引的文件，期间被重新写入的键保留
+    private void deleteFiles(List<String> keys) {
+        for (String key : keys) {
+            synchronized (fileLock(key)) {
+                synchronized (this) {
+                    if (disk.containsKey(key)) continue;
+                }
+                fileFor(key).delete();
+            }
+        }
+    }
+
+    private Object fileLock(String key) {
+        return fileLocks[(key.hashCode() & 0x7FFFFFFF) % fileLocks.length];
+    }
+
+    // 首次访问时扫描缓存目录，按修改时间恢复 LRU 顺序；扫描不持有 this，不阻塞内存命中
+    private void ensureDiskIndex() {
+        if (diskIndexed) return;
+        synchronized (indexLock) {
+            if (diskIndexed) return;
+            List<String> evicted = new ArrayList<>();
+            File[] files = directory.isDirectory() || directory.mkdirs() ? directory.listFiles() : null;
+            if (files != null) {
+                Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+                long[] lengths = new long[files.length];
+                for (int i = 0; i < files.length; i++) {
+                    lengths[i] = files[i].length();
+                }
+                // 写入在登记前都会等待扫描完成，此时索引为空
+                synchronized (this) {
+                    for (int i = 0; i < files.length; i++) {
+                        String name = files[i].getName();
+                        if (!name.endsWith(SUFFIX)) continue;
+                        disk.put(name.substring(0, name.length() - SUFFIX.length()), new DiskEntry(lengths[i]));
+                        diskBytes += lengths[i];
+                    }
+                    evicted = trimDisk();
+                }
+                for (File file : files) {
+                    if (!file.getName().endsWith(SUFFIX)) file.delete();
+                }
+            }
+            deleteFiles(evicted);
+            diskIndexed = true;
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+
+    private static void writeFile(File file, Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + entry.values.length * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(entry.durationUs).putInt(entry.values.length);
+        buffer.asFloatBuffer().put(entry.values);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    private static Entry readFile(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) return null;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt() != MAGIC || mapped.getInt() != VERSION) return null;
+            long durationUs = mapped.getLong();
+            int count = mapped.getInt();
+            if (count < 0 || HEADER_SIZE + (long) count * 4 != size) return null;
+            float[] values = new float[count];
+            mapped.asFloatBuffer().get(values);
+            return new Entry(durationUs, values);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static String sha1(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
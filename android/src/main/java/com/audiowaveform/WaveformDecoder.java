@@ -0,0 +1,541 @@
+package com.audiowaveform;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MediaExtractor + MediaCodec 解码，把 PCM 直接归约进 {@link WaveformReducer}。
+ * 支持把音轨按时间切成多段、每段使用独立解码器并行解码。
+ */
+public class WaveformDecoder {
+
+    private static final String TAG = "AudioWaveform";
+    private static final long TIMEOUT_US = 10000;
+
+    // 分段起点前额外解码的时长，让解码器在分段边界之前完成预热，边界前的输出会被丢弃
+    private static final long SEGMENT_PREROLL_US = 200_000;
+    // 每段至少的时长，过短的文件不值得并行
+    private static final long MIN_SEGMENT_US = 10_000_000;
+    // 近似模式下连续多少次取不到输出就放弃当前区间
+    private static final int SPARSE_MAX_IDLE_POLLS = 50;
+
+    /**
+     * 已打开并选中音轨的数据源，使用完毕需 {@link #release()}。
+     */
+    public static class Source {
+        public final String url;
+        public final int trackIndex;
+        public final MediaFormat format;
+        public final long durationUs;
+        final MediaExtractor extractor;
+        // 远程地址的字节缓存，分段解码打开其他 extractor 时共用
+        final HttpByteCache httpCache;
+        private final HttpMediaDataSource dataSource;
+
+        Source(String url, HttpByteCache httpCache, MediaExtractor extractor, HttpMediaDataSource dataSource,
+               int trackIndex, MediaFormat format, long durationUs) {
+            this.url = url;
+            this.httpCache = httpCache;
+            this.extractor = extractor;
+            this.dataSource = dataSource;
+            this.trackIndex = trackIndex;
+            this.format = format;
+            this.durationUs = durationUs;
+        }
+
+        public void release() {
+            try { extractor.release(); } catch (Exception ignored) {}
+            if (dataSource != null) dataSource.close();
+        }
+    }
+
+    /**
+     * @param httpCache http(s) 地址通过 Range 请求读取并缓存字节，为 null 时交给 MediaExtractor 直接读取
+     */
+    public static Source open(String url, HttpByteCache httpCache) throws IOException, WaveformException {
+        MediaExtractor extractor = new MediaExtractor();
+        HttpMediaDataSource dataSource = null;
+        try {
+            dataSource = setDataSource(extractor, url, httpCache);
+
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("audio/")) continue;
+
+                if (!format.containsKey(MediaFormat.KEY_DURATION) || format.getLong(MediaFormat.KEY_DURATION) <= 0) {
+                    throw new WaveformException("无法获取音频时长");
+                }
+                extractor.selectTrack(i);
+                return new Source(url, httpCache, extractor, dataSource, i, format,
+                        format.getLong(MediaFormat.KEY_DURATION));
+            }
+            throw new WaveformException("未找到音频轨道");
+        } catch (IOException | WaveformException | RuntimeException e) {
+            extractor.release();
+            if (dataSource != null) dataSource.close();
+            throw e;
+        }
+    }
+
+    // 返回创建的远程数据源，需在 extractor 释放后关闭；本地文件返回 null
+    private static HttpMediaDataSource setDataSource(MediaExtractor extractor, String url,
+                                                     HttpByteCache httpCache) throws IOException {
+        if (httpCache == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            extractor.setDataSource(url);
+            return null;
+        }
+        HttpMediaDataSource dataSource = new HttpMediaDataSource(httpCache, url);
+        try {
+            extractor.setDataSource(dataSource);
+        } catch (IOException | RuntimeException e) {
+            dataSource.close();
+            throw e;
+        }
+        return dataSource;
+    }
+
+    /**
+     * 串行解码整条音轨，解码器从 pool 借出。
+     */
+    public static void decode(Source source, DecoderPool pool, WaveformReducer reducer, AtomicBoolean cancelled,
+                              ProgressListener listener, JobStats stats) throws IOException {
+        withPooledCodec(source, pool, reducer, cancelled, stats,
+                codec -> decode(source, codec, reducer, cancelled, listener, stats));
+    }
+
+    /**
+     * 使用调用方持有的解码器串行解码，解码器需已按 source.format 配置并启动（见 {@link #createCodec}）。
+     */
+    public static void decode(Source source, MediaCodec codec, WaveformReducer reducer, AtomicBoolean cancelled,
+                              ProgressListener listener, JobStats stats) {
+        decodeRange(source.extractor, codec, source.format, Long.MIN_VALUE, Long.MAX_VALUE, reducer,
+                cancelled, listener, stats);
+    }
+
+    /**
+     * 分段并行解码：每段使用独立的 MediaExtractor 和 MediaCodec，部分结果按分段顺序合并。
+     * 解码器实例不足或并行解码失败时退回串行解码。
+     *
+     * @param stats 可为 null
+     */
+    public static void decodeSegmented(Source source, DecoderPool pool, WaveformReducer reducer, int segments,
+                                       ExecutorService executor, AtomicBoolean cancelled,
+                                       ProgressListener listener, JobStats stats) throws Exception {
+        segments = (int) Math.max(1, Math.min(segments, source.durationUs / MIN_SEGMENT_US));
+
+        // 先借出全部解码器，不等待其他请求交还；池已满或设备拒绝更多实例时按已借到的数量分段
+        List<DecoderPool.Lease> leases = new ArrayList<>();
+        long setupStart = System.nanoTime();
+        for (int i = 0; i < segments; i++) {
+            try {
+                DecoderPool.Lease lease = pool.tryAcquire(source.format);
+                if (lease == null) {
+                    if (DebugLog.enabled) Log.d(TAG, "解码器已达上限，分段数降为" + leases.size());
+                    break;
+                }
+                leases.add(lease);
+            } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+                Log.w(TAG, "创建第" + (i + 1) + "个解码器失败，分段数降为" + leases.size() + ": " + e.getMessage());
+                break;
+            }
+        }
+        if (stats != null) stats.addCodecSetup(System.nanoTime() - setupStart);
+
+        if (leases.size() <= 1) {
+            for (DecoderPool.Lease lease : leases) pool.release(lease);
+            decode(source, pool, reducer, cancelled, listener, stats);
+            return;
+        }
+
+        int count = leases.size();
+        SegmentProgress progress = listener != null ? new SegmentProgress(count, listener) : null;
+        WaveformReducer[] partials = new WaveformReducer[count];
+        List<Future<?>> futures = new ArrayList<>();
+        boolean failed = false;
+        boolean finished = false;
+        try {
+            for (int i = 1; i < count; i++) {
+                final int index = i;
+                final MediaCodec codec = leases.get(i).codec;
+                partials[i] = reducer.emptyCopy();
+                futures.add(executor.submit(() -> {
+                    MediaExtractor extractor = new MediaExtractor();
+                    HttpMediaDataSource dataSource = null;
+                    try {
+                        dataSource = setDataSource(extractor, source.url, source.httpCache);
+                        extractor.selectTrack(source.trackIndex);
+                        decodeRange(extractor, codec, source.format, segmentStartUs(source, index, count),
+                                segmentEndUs(source, index, count), partials[index], cancelled,
+                                progress != null ? progress.forSegment(index) : null, stats);
+                    } finally {
+                        extractor.release();
+                        if (dataSource != null) dataSource.close();
+                    }
+                    return null;
+                }));
+            }
+
+            // 第一段在当前线程解码
+            partials[0] = reducer.emptyCopy();
+            try {
+                decodeRange(source.extractor, leases.get(0).codec, source.format, Long.MIN_VALUE,
+                        segmentEndUs(source, 0, count), partials[0], cancelled,
+                        progress != null ? progress.forSegment(0) : null, stats);
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "分段解码失败: " + e.getMessage());
+                failed = true;
+            }
+            finished = true;
+        } finally {
+            // 所有分段结束后才能交还解码器，否则仍在使用的实例会被其他请求借出
+            boolean interrupted = false;
+            for (Future<?> future : futures) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (ExecutionException e) {
+                        Log.w(TAG, "分段解码失败: " + e.getCause());
+                        failed = true;
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            // 出错或第一段抛出其他异常时无法确定实例状态，全部丢弃
+            for (DecoderPool.Lease lease : leases) {
+                if (failed || !finished) pool.discard(lease); else pool.release(lease);
+            }
+        }
+
+        if (failed) {
+            Log.w(TAG, "并行解码失败，退回串行解码");
+            source.extractor.seekTo(0, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            decode(source, pool, reducer, cancelled, listener, stats);
+            return;
+        }
+
+        for (WaveformReducer partial : partials) {
+            reducer.merge(partial);
+        }
+    }
+
+    /**
+     * 近似模式：每个输出区间只在区间起点附近解码 windowFrames 帧 PCM，用这一小段估计整个区间。
+     * 解码量与区间数成正比，与文件长度无关。
+     */
+    public static void decodeSparse(Source source, DecoderPool pool, WaveformReducer reducer, int windowFrames,
+                                    AtomicBoolean cancelled, ProgressListener listener,
+                                    JobStats stats) throws IOException {
+        withPooledCodec(source, pool, reducer, cancelled, stats,
+                codec -> decodeSparse(source, codec, reducer, windowFrames, cancelled, listener, stats));
+    }
+
+    /**
+     * 使用调用方持有的解码器进行近似解码，要求同 {@link #decode(Source, MediaCodec, WaveformReducer, AtomicBoolean, ProgressListener, JobStats)}。
+     */
+    public static void decodeSparse(Source source, MediaCodec codec, WaveformReducer reducer, int windowFrames,
+                                    AtomicBoolean cancelled, ProgressListener listener, JobStats stats) {
+        MediaExtractor extractor = source.extractor;
+        int sampleRate = source.format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        PcmReader pcm = new PcmReader(pcmEncoding(source.format),
+                source.format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        int buckets = reducer.getBuckets();
+        long loopStart = System.nanoTime();
+        long reduceNanos = 0;
+        long bytes = 0;
+        long samples = 0;
+
+        for (int bucket = 0; bucket < buckets && !cancelled.get(); bucket++) {
+            long windowStartUs = bucket == 0 ? 0 : reducer.bucketEndUs(bucket - 1);
+            long windowEndUs = reducer.bucketEndUs(bucket);
+            if (bucket > 0) codec.flush();
+            extractor.seekTo(windowStartUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+
+            int collected = 0;
+            int idle = 0;
+            boolean isEOS = false;
+            while (collected < windowFrames && idle < SPARSE_MAX_IDLE_POLLS && !cancelled.get()) {
+                if (!isEOS) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+                        if (inputBuffer != null) {
+                            int sampleSize = extractor.readSampleData(inputBuffer, 0);
+                            long presentationTimeUs = extractor.getSampleTime();
+                            if (sampleSize < 0 || presentationTimeUs >= windowEndUs) {
+                                codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                                isEOS = true;
+                            } else {
+                                codec.queueInputBuffer(inputIndex, 0, sampleSize, presentationTimeUs, 0);
+                                extractor.advance();
+                            }
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outputFormat = codec.getOutputFormat();
+                    sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    pcm.setFormat(pcmEncoding(outputFormat), outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                    continue;
+                }
+                if (outputIndex < 0) {
+                    idle++;
+                    continue;
+                }
+                idle = 0;
+
+                ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
+                if (outputBuffer != null && bufferInfo.size > 0) {
+                    int frames = pcm.read(outputBuffer, bufferInfo.offset, bufferInfo.size, ByteOrder.nativeOrder());
+                    // 跳过同步帧到区间起点之间的预热输出
+                    int from = firstFrameAtOrAfter(windowStartUs, bufferInfo.presentationTimeUs, sampleRate, frames);
+                    // 按帧计数，一个输出缓冲区含多少帧随编码格式而不同（1024~4608）
+                    int to = (int) Math.min(frames, (long) from + windowFrames - collected);
+                    if (from < to) {
+                        long reduceStart = System.nanoTime();
+                        reducer.addFramesToBucket(bucket, pcm.samples(), from, to, pcm.getChannelCount());
+                        reduceNanos += System.nanoTime() - reduceStart;
+                        collected += to - from;
+                    }
+                    bytes += bufferInfo.size;
+                    samples += (long) frames * pcm.getChannelCount();
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+            }
+
+            if (listener != null) {
+                listener.onProgress((bucket + 1) / (double) buckets, bucket + 1);
+            }
+        }
+        if (stats != null) {
+            stats.addDecode(System.nanoTime() - loopStart - reduceNanos, reduceNanos, bytes, samples);
+        }
+    }
+
+    private interface CodecTask {
+        void run(MediaCodec codec);
+    }
+
+    /**
+     * 借出解码器执行 task。复用的实例抛出异常（如 MediaCodec.CodecException）时丢弃该实例，
+     * 清空已累加的结果，从头用新实例重试一次；新实例出错则直接抛出。
+     */
+    private static void withPooledCodec(Source source, DecoderPool pool, WaveformReducer reducer,
+                                        AtomicBoolean cancelled, JobStats stats, CodecTask task) throws IOException {
+        long setupStart = System.nanoTime();
+        DecoderPool.Lease lease = pool.acquire(source.format, cancelled);
+        if (stats != null) stats.addCodecSetup(System.nanoTime() - setupStart);
+        while (true) {
+            boolean healthy = false;
+            try {
+                task.run(lease.codec);
+                healthy = true;
+                return;
+            } catch (IllegalStateException e) {
+                if (!lease.reused) throw e;
+                Log.w(TAG, "复用的解码器出错，使用新实例重试: " + e.getMessage());
+            } finally {
+                if (healthy) pool.release(lease); else pool.discard(lease);
+            }
+            source.extractor.seekTo(0, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            reducer.clear();
+            setupStart = System.nanoTime();
+            lease = pool.acquireFresh(source.format, cancelled);
+            if (stats != null) stats.addCodecSetup(System.nanoTime() - setupStart);
+        }
+    }
+
+    private static long segmentStartUs(Source source, int index, int count) {
+        return index == 0 ? Long.MIN_VALUE : source.durationUs * index / count;
+    }
+
+    private static long segmentEndUs(Source source, int index, int count) {
+        return index == count - 1 ? Long.MAX_VALUE : source.durationUs * (index + 1) / count;
+    }
+
+    /**
+     * 解码时间落在 [startUs, endUs) 内的帧。startUs 之前的预热输出和 endUs 之后的输出都会被丢弃，
+     * 相邻分段因此不会重复或遗漏边界附近的样本。
+     */
+    static void decodeRange(MediaExtractor extractor, MediaCodec codec, MediaFormat format,
+                            long startUs, long endUs, WaveformReducer reducer,
+                            AtomicBoolean cancelled, ProgressListener listener, JobStats stats) {
+        int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        PcmReader pcm = new PcmReader(pcmEncoding(format), format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+        long rangeStartUs = Math.max(0, startUs);
+        long rangeEndUs = Math.max(rangeStartUs + 1, Math.min(reducer.getDurationUs(), endUs));
+
+        if (startUs != Long.MIN_VALUE) {
+            extractor.seekTo(Math.max(0, startUs - SEGMENT_PREROLL_US), MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+        }
+
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        boolean isEOS = false;
+        long loopStart = System.nanoTime();
+        long reduceNanos = 0;
+        long bytes = 0;
+        long samples = 0;
+
+        try {
+            while (!cancelled.get()) {
+                if (!isEOS) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+                        if (inputBuffer != null) {
+                            int sampleSize = extractor.readSampleData(inputBuffer, 0);
+                            long presentationTimeUs = extractor.getSampleTime();
+                            if (sampleSize < 0 || presentationTimeUs >= endUs) {
+                                codec.queueInputBuffer(inputIndex, 0, 0, 0,
+                                        MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                                isEOS = true;
+                            } else {
+                                codec.queueInputBuffer(inputIndex, 0, sampleSize, presentationTimeUs, 0);
+                                extractor.advance();
+                            }
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+                while (!cancelled.get()) {
+                    if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                        // 解码器实际输出的采样率、声道数和位深以输出格式为准
+                        MediaFormat outputFormat = codec.getOutputFormat();
+                        sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                        pcm.setFormat(pcmEncoding(outputFormat), outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+                        if (DebugLog.enabled) {
+                            Log.d(TAG, "输出格式变化 - 采样率:" + sampleRate + ", 声道数:" + pcm.getChannelCount()
+                                    + ", 编码:" + pcm.getEncoding());
+                        }
+                        outputIndex = codec.dequeueOutputBuffer(bufferInfo, 0);
+                        continue;
+                    }
+                    if (outputIndex < 0) break;
+
+                    ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
+                    if (outputBuffer != null && bufferInfo.size > 0) {
+                        int frames = pcm.read(outputBuffer, bufferInfo.offset, bufferInfo.size, ByteOrder.nativeOrder());
+
+                        long ptsUs = bufferInfo.presentationTimeUs;
+                        int from = startUs == Long.MIN_VALUE ? 0 : firstFrameAtOrAfter(startUs, ptsUs, sampleRate, frames);
+                        int to = endUs == Long.MAX_VALUE ? frames : firstFrameAtOrAfter(endUs, ptsUs, sampleRate, frames);
+                        long reduceStart = System.nanoTime();
+                        reducer.addFrames(pcm.samples(), from, to, pcm.getChannelCount(), ptsUs, sampleRate);
+                        reduceNanos += System.nanoTime() - reduceStart;
+                        bytes += bufferInfo.size;
+                        samples += (long) frames * pcm.getChannelCount();
+
+                        if (listener != null) {
+                            double fraction = (ptsUs - rangeStartUs) / (double) (rangeEndUs - rangeStartUs);
+                            int completed = startUs == Long.MIN_VALUE && endUs == Long.MAX_VALUE
+                                    ? reducer.bucketForTime(ptsUs) : 0;
+                            listener.onProgress(Math.max(0, Math.min(1, fraction)), completed);
+                        }
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                    outputIndex = codec.dequeueOutputBuffer(bufferInfo, 0);
+                }
+
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+            }
+        } finally {
+            long elapsed = System.nanoTime() - loopStart;
+            if (stats != null) stats.addDecode(elapsed - reduceNanos, reduceNanos, bytes, samples);
+            if (DebugLog.enabled) {
+                Log.d(TAG, "解码结束，耗时:" + elapsed / 1_000_000 + "ms，其中归约:" + reduceNanos / 1_000_000
+                        + "ms，输出字节:" + bytes);
+            }
+        }
+    }
+
+    // 未声明 KEY_PCM_ENCODING 的解码器输出 16 位 PCM
+    private static int pcmEncoding(MediaFormat format) {
+        return format.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                ? format.getInteger(MediaFormat.KEY_PCM_ENCODING) : PcmReader.ENCODING_PCM_16BIT;
+    }
+
+    // 汇总各分段进度，取平均值
+    private static class SegmentProgress {
+        private final double[] fractions;
+        private final ProgressListener listener;
+
+        SegmentProgress(int segments, ProgressListener listener) {
+            this.fractions = new double[segments];
+            this.listener = listener;
+        }
+
+        ProgressListener forSegment(int index) {
+            return (fraction, completedBuckets) -> {
+                double total = 0;
+                synchronized (this) {
+                    fractions[index] = fraction;
+                    for (double f : fractions) total += f;
+                }
+                listener.onProgress(total / fractions.length, 0);
+            };
+        }
+    }
+
+    // 缓冲区内第一个时间 >= timeUs 的帧序号，范围 [0, frames]
+    private static int firstFrameAtOrAfter(long timeUs, long ptsUs, int sampleRate, int frames) {
+        if (timeUs <= ptsUs) return 0;
+        long frame = ((timeUs - ptsUs) * sampleRate + 999_999L) / 1_000_000L;
+        return (int) Math.min(frames, frame);
+    }
+
+    /**
+     * 创建并按 format 配置、启动解码器。一般通过 {@link DecoderPool} 获取。
+     */
+    static MediaCodec createCodec(MediaFormat format) throws IOException {
+        MediaCodec codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+        try {
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (RuntimeException e) {
+            codec.release();
+            throw e;
+        }
+        return codec;
+    }
+
+    /**
+     * 复用同一 MIME 的解码器解码另一种格式：停止后按新格式重新配置，省去创建和释放实例的开销。
+     */
+    static void reconfigureCodec(MediaCodec codec, MediaFormat format) {
+        codec.stop();
+        codec.configure(format, null, null, 0);
+        codec.start();
+    }
+
+    static void releaseCodec(MediaCodec codec) {
+        try { codec.stop(); } catch (Exception ignored) {}
+        try { codec.release(); } catch (Exception ignored) {}
+    }
+}
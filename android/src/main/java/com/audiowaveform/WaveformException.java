@@ -0,0 +1,13 @@
+package com.audiowaveform;
+
+/**
+ * 可直接展示给调用方的波形处理错误。
+ */
+public class WaveformException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public WaveformException(String message) {
+        super(message);
+    }
+}
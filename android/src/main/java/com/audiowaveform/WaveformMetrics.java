@@ -0,0 +1,106 @@
+package com.audiowaveform;
+
+/**
+ * 一次解码得到的全部波形指标：每个区间的 amplitude / peak / rms / logarithmic 以及带符号的 min / max，
+ * 可选地包含各声道单独的指标。切换波形类型时直接从这里取值，无需重新解码。
+ * 数据按 [声道（-1 为混合）][指标][区间] 顺序存放在一个 float 数组中，便于整体缓存。
+ */
+public final class WaveformMetrics {
+
+    public static final String[] NAMES = {"amplitude", "peak", "rms", "logarithmic", "min", "max"};
+    private static final int MIN_INDEX = 4;
+    private static final int MAX_INDEX = 5;
+
+    private final int samples;
+    private final int channelCount;
+    private final float[] data;
+
+    private WaveformMetrics(int samples, int channelCount, float[] data) {
+        this.samples = samples;
+        this.channelCount = channelCount;
+        this.data = data;
+    }
+
+    public static WaveformMetrics fromReducer(WaveformReducer reducer) {
+        int samples = reducer.getBuckets();
+        int channels = reducer.getTrackedChannels();
+        int stride = NAMES.length * samples;
+        float[] data = new float[(channels + 1) * stride];
+        fill(reducer, data, 0);
+        for (int c = 0; c < channels; c++) {
+            fill(reducer.channel(c), data, (c + 1) * stride);
+        }
+        return new WaveformMetrics(samples, channels, data);
+    }
+
+    /**
+     * 由 {@link #toPacked} 的结果恢复，长度与点数不匹配时返回 null。
+     */
+    public static WaveformMetrics fromPacked(int samples, float[] packed) {
+        int stride = NAMES.length * samples;
+        if (samples <= 0 || packed.length == 0 || packed.length % stride != 0) return null;
+        return new WaveformMetrics(samples, packed.length / stride - 1, packed);
+    }
+
+    private static void fill(WaveformReducer reducer, float[] data, int offset) {
+        int samples = reducer.getBuckets();
+        for (int m = 0; m < NAMES.length; m++) {
+            int base = offset + m * samples;
+            for (int i = 0; i < samples; i++) {
+                if (m == MIN_INDEX) {
+                    data[base + i] = reducer.minAt(i);
+                } else if (m == MAX_INDEX) {
+                    data[base + i] = reducer.maxAt(i);
+                } else {
+                    data[base + i] = (float) reducer.valueAt(i, NAMES[m]);
+                }
+            }
+        }
+    }
+
+    // 未知的指标名返回 -1
+    public static int indexOf(String metric) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(metric)) return i;
+        }
+        return -1;
+    }
+
+    // min / max 为带符号值（-1.0~1.0），其他指标为 0.0-1.0
+    public static boolean isSigned(String metric) {
+        int index = indexOf(metric);
+        return index == MIN_INDEX || index == MAX_INDEX;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * 混合声道的指定指标，未知的指标名按 amplitude 处理（与 {@link WaveformReducer#valueAt} 一致）。
+     */
+    public float[] get(String metric) {
+        return get(-1, metric);
+    }
+
+    /**
+     * @param channel 声道序号，-1 表示混合声道
+     */
+    public float[] get(int channel, String metric) {
+        if (channel < -1 || channel >= channelCount) {
+            throw new IndexOutOfBoundsException("channel " + channel);
+        }
+        int index = Math.max(0, indexOf(metric));
+        float[] values = new float[samples];
+        System.arraycopy(data, ((channel + 1) * NAMES.length + index) * samples, values, 0, samples);
+        return values;
+    }
+
+    public float[] toPacked() {
+        return data;
+    }
+}
@@ -0,0 +1,86 @@
+package com.audiowaveform;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import android.os.SystemClock;
+import android.util.Log;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 解码过程中通过 RCTDeviceEventEmitter 推送进度和已完成的波形片段，按时间间隔节流。
+ */
+public class WaveformProgressEmitter implements ProgressListener {
+
+    public static final String EVENT_PROGRESS = "AudioWaveformProgress";
+
+    private static final String TAG = "AudioWaveform";
+
+    private final ReactApplicationContext reactContext;
+    private final Supplier<List<String>> jobIds;
+    private final Map<String, String> subscribedJobs;
+    private final WaveformReducer reducer;
+    private final long intervalMs;
+    private final ProgressChunks chunks;
+
+    private long lastEmitMs = 0;
+
+    /**
+     * @param jobIds         当前作业关联的任务 ID（合并请求时可能有多个）
+     * @param subscribedJobs 请求了进度推送的任务 ID 及其波形类型，只向这些任务发送事件，片段按各自的类型计算
+     */
+    public WaveformProgressEmitter(ReactApplicationContext reactContext, Supplier<List<String>> jobIds,
+                                   Map<String, String> subscribedJobs, WaveformReducer reducer,
+                                   long intervalMs) {
+        this.reactContext = reactContext;
+        this.jobIds = jobIds;
+        this.subscribedJobs = subscribedJobs;
+        this.reducer = reducer;
+        this.intervalMs = intervalMs;
+        this.chunks = new ProgressChunks(reducer);
+    }
+
+    @Override
+    public synchronized void onProgress(double fraction, int completedBuckets) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastEmitMs < intervalMs) return;
+        lastEmitMs = now;
+        emit(fraction, completedBuckets);
+    }
+
+    /**
+     * 解码完成后推送剩余片段和 100% 进度。
+     */
+    public synchronized void finish() {
+        emit(1.0, reducer.getBuckets());
+    }
+
+    // 每个订阅者从自己已收到的位置继续，合并进来较晚的请求会先收到之前的全部片段
+    private void emit(double fraction, int completedBuckets) {
+        chunks.emit(jobIds.get(), subscribedJobs, completedBuckets, (jobId, start, end, chunk) -> {
+            WritableMap event = Arguments.createMap();
+            event.putString("jobId", jobId);
+            event.putDouble("progress", Math.round(fraction * 1000) / 10.0);
+            event.putInt("startIndex", start);
+            event.putInt("endIndex", end);
+            WritableArray values = Arguments.createArray();
+            for (double value : chunk) {
+                values.pushDouble(value);
+            }
+            event.putArray("values", values);
+
+            try {
+                reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                        .emit(EVENT_PROGRESS, event);
+                return true;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "推送波形进度失败: " + e.getMessage());
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.audiowaveform;
+
+/**
+ * 多分辨率波形金字塔：第 0 层是固定时长的细粒度区间（min/max/均方），
+ * 之后每层把相邻两个区间合并为一个，直到只剩一个区间。
+ * 任意时间范围的查询只需在合适的层上读取约 points 个区间，与音频长度无关。
+ * 只依赖 JDK，可在普通 JVM 上运行。
+ */
+public final class WaveformPyramid {
+
+    // 第 0 层每个区间的目标时长，44.1kHz 下约 220 个样本
+    public static final long BASE_BIN_US = 5_000;
+    // 第 0 层区间数上限，约 22 分钟以上的音频会相应放宽区间时长
+    public static final int MAX_BASE_BINS = 1 << 18;
+    // 查询时每个点至少覆盖的区间数，区间边界与点边界不对齐造成的误差不超过 1/4 个点
+    private static final int MIN_BINS_PER_POINT = 4;
+
+    private final long durationUs;
+    // levels[k] 的区间数为 ceil(baseBins / 2^k)
+    private final float[][] min;
+    private final float[][] max;
+    private final float[][] meanSquare;
+
+    /**
+     * 查询结果：每个点的带符号最小值、最大值和 RMS。
+     */
+    public static final class Range {
+        public final long startUs;
+        public final long endUs;
+        public final int level;
+        public final long binDurationUs;
+        public final float[] min;
+        public final float[] max;
+        public final float[] rms;
+
+        Range(long startUs, long endUs, int level, long binDurationUs, float[] min, float[] max, float[] rms) {
+            this.startUs = startUs;
+            this.endUs = endUs;
+            this.level = level;
+            this.binDurationUs = binDurationUs;
+            this.min = min;
+            this.max = max;
+            this.rms = rms;
+        }
+    }
+
+    /**
+     * 按时长计算第 0 层的区间数。
+     */
+    public static int baseBinsFor(long durationUs) {
+        long bins = (durationUs + BASE_BIN_US - 1) / BASE_BIN_US;
+        return (int) Math.max(1, Math.min(MAX_BASE_BINS, bins));
+    }
+
+    /**
+     * 由以 {@link #baseBinsFor} 个区间归约的结果构建金字塔。
+     */
+    public static WaveformPyramid fromReducer(WaveformReducer reducer) {
+        int bins = reducer.getBuckets();
+        float[] min = new float[bins];
+        float[] max = new float[bins];
+        float[] meanSquare = new float[bins];
+        for (int i = 0; i < bins; i++) {
+            min[i] = reducer.minAt(i);
+            max[i] = reducer.maxAt(i);
+            meanSquare[i] = (float) reducer.meanSquareAt(i);
+        }
+        return new WaveformPyramid(reducer.getDurationUs(), min, max, meanSquare);
+    }
+
+    /**
+     * 由 {@link #toPacked} 的结果恢复，用于磁盘缓存。格式不符时返回 null。
+     */
+    public static WaveformPyramid fromPacked(long durationUs, float[] packed) {
+        if (durationUs <= 0 || packed.length == 0 || packed.length % 3 != 0) return null;
+        int bins = packed.length / 3;
+        float[] min = new float[bins];
+        float[] max = new float[bins];
+        float[] meanSquare = new float[bins];
+        System.arraycopy(packed, 0, min, 0, bins);
+        System.arraycopy(packed, bins, max, 0, bins);
+        System.arraycopy(packed, bins * 2, meanSquare, 0, bins);
+        return new WaveformPyramid(durationUs, min, max, meanSquare);
+    }
+
+    private WaveformPyramid(long durationUs, float[] baseMin, float[] baseMax, float[] baseMeanSquare) {
+        this.durationUs = durationUs;
+        int levels = 1;
+        for (int bins = baseMin.length; bins > 1; bins = (bins + 1) / 2) {
+            levels++;
+        }
+        min = new float[levels][];
+        max = new float[levels][];
+        meanSquare = new float[levels][];
+        min[0] = baseMin;
+        max[0] = baseMax;
+        meanSquare[0] = baseMeanSquare;
+
+        for (int level = 1; level < levels; level++) {
+            float[] lowerMin = min[level - 1];
+            float[] lowerMax = max[level - 1];
+            float[] lowerSquare = meanSquare[level - 1];
+            int bins = (lowerMin.length + 1) / 2;
+            float[] levelMin = new float[bins];
+            float[] levelMax = new float[bins];
+            float[] levelSquare = new float[bins];
+            for (int i = 0; i < bins; i++) {
+                int a = i * 2;
+                int b = a + 1;
+                if (b < lowerMin.length) {
+                    levelMin[i] = Math.min(lowerMin[a], lowerMin[b]);
+                    levelMax[i] = Math.max(lowerMax[a], lowerMax[b]);
+                    // 同层区间等长，直接取平均
+                    levelSquare[i] = (lowerSquare[a] + lowerSquare[b]) * 0.5f;
+                } else {
+                    levelMin[i] = lowerMin[a];
+                    levelMax[i] = lowerMax[a];
+                    levelSquare[i] = lowerSquare[a];
+                }
+            }
+            min[level] = levelMin;
+            max[level] = levelMax;
+            meanSquare[level] = levelSquare;
+        }
+    }
+
+    public long getDurationUs() {
+        return durationUs;
+    }
+
+    public int getLevelCount() {
+        return min.length;
+    }
+
+    public int getBaseBins() {
+        return min[0].length;
+    }
+
+    /**
+     * 第 0 层按 [min..., max..., meanSquare...] 顺序展开，其他层可由此重建。
+     */
+    public float[] toPacked() {
+        int bins = getBaseBins();
+        float[] packed = new float[bins * 3];
+        System.arraycopy(min[0], 0, packed, 0, bins);
+        System.arraycopy(max[0], 0, packed, bins, bins);
+        System.arraycopy(meanSquare[0], 0, packed, bins * 2, bins);
+        return packed;
+    }
+
+    /**
+     * 把 [startUs, endUs) 划分为 points 个点。选择每个点至少覆盖 MIN_BINS_PER_POINT 个区间的最粗层级，
+     * 因此每个点只需合并少量区间；范围比第 0 层区间还细时，相邻点会落在同一个区间上。
+     */
+    public Range query(long startUs, long endUs, int points) {
+        if (points <= 0) {
+            throw new IllegalArgumentException("points must be positive");
+        }
+        startUs = Math.max(0, Math.min(durationUs, startUs));
+        endUs = Math.max(startUs, Math.min(durationUs, endUs));
+
+        int baseBins = getBaseBins();
+        double binsPerUs = (double) baseBins / durationUs;
+        double first = startUs * binsPerUs;
+        double span = (endUs - startUs) * binsPerUs;
+        double binsPerPoint = span / points;
+
+        int level = 0;
+        while (level + 1 < getLevelCount() && binsPerPoint >= (long) MIN_BINS_PER_POINT << (level + 1)) {
+            level++;
+        }
+        double scale = 1.0 / (1L << level);
+        float[] levelMin = min[level];
+        float[] levelMax = max[level];
+        float[] levelSquare = meanSquare[level];
+        int bins = levelMin.length;
+
+        float[] outMin = new float[points];
+        float[] outMax = new float[points];
+        float[] outRms = new float[points];
+        for (int i = 0; i < points; i++) {
+            int from = (int) ((first + span * i / points) * scale);
+            int to = (int) Math.ceil((first + span * (i + 1) / points) * scale);
+            from = Math.min(from, bins - 1);
+            to = Math.max(from + 1, Math.min(to, bins));
+
+            float lo = levelMin[from];
+            float hi = levelMax[from];
+            double squares = 0;
+            for (int b = from; b < to; b++) {
+                if (levelMin[b] < lo) lo = levelMin[b];
+                if (levelMax[b] > hi) hi = levelMax[b];
+                squares += levelSquare[b];
+            }
+            outMin[i] = lo;
+            outMax[i] = hi;
+            outRms[i] = (float) Math.sqrt(squares / (to - from));
+        }
+
+        long binDurationUs = (durationUs << level) / baseBins;
+        return new Range(startUs, endUs, level, binDurationUs, outMin, outMax, outRms);
+    }
+}
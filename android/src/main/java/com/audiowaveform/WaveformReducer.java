@@ -0,0 +1,276 @@
+package com.audiowaveform;
+
+import java.util.Arrays;
+
+/**
+ * 流式波形归约器：按时长预先划分输出区间，解码出的每一帧直接累加到对应区间的原始类型累加器中，
+ * 内存占用只与输出点数相关，与解码样本数无关。
+ */
+public class WaveformReducer {
+
+    public static final float MAX_AMPLITUDE = 32767f;
+    public static final float SILENCE_THRESHOLD = 0.001f; // 静音阈值
+
+    private final int buckets;
+    private final long durationUs;
+
+    // 每个区间的累加器（振幅均已归一化到 0.0-1.0）
+    private final double[] sumAbs;
+    private final double[] sumSquares;
+    private final float[] peak;
+    // 按声道平均后的带符号样本的极值
+    private final float[] min;
+    private final float[] max;
+    private final int[] count;
+    // 按声道分别统计时每个声道一个单声道归约器，未启用时为 null
+    private final WaveformReducer[] channels;
+
+    public WaveformReducer(int buckets, long durationUs) {
+        this(buckets, durationUs, 0);
+    }
+
+    /**
+     * @param trackedChannels 除混合后的结果外，再分别统计前几个声道；0 表示不统计
+     */
+    public WaveformReducer(int buckets, long durationUs, int trackedChannels) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive");
+        }
+        if (durationUs <= 0) {
+            throw new IllegalArgumentException("durationUs must be positive");
+        }
+        this.buckets = buckets;
+        this.durationUs = durationUs;
+        this.sumAbs = new double[buckets];
+        this.sumSquares = new double[buckets];
+        this.peak = new float[buckets];
+        this.min = new float[buckets];
+        this.max = new float[buckets];
+        this.count = new int[buckets];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        if (trackedChannels > 0) {
+            channels = new WaveformReducer[trackedChannels];
+            for (int c = 0; c < trackedChannels; c++) {
+                channels[c] = new WaveformReducer(buckets, durationUs);
+            }
+        } else {
+            channels = null;
+        }
+    }
+
+    /**
+     * 相同划分、相同声道设置的空归约器，用于并行计算的部分结果。
+     */
+    public WaveformReducer emptyCopy() {
+        return new WaveformReducer(buckets, durationUs, getTrackedChannels());
+    }
+
+    public int getTrackedChannels() {
+        return channels != null ? channels.length : 0;
+    }
+
+    // 第 channel 个声道的单声道结果
+    public WaveformReducer channel(int channel) {
+        return channels[channel];
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public long getDurationUs() {
+        return durationUs;
+    }
+
+    public int bucketForTime(long timeUs) {
+        if (timeUs <= 0) return 0;
+        long bucket = timeUs * buckets / durationUs;
+        return bucket >= buckets ? buckets - 1 : (int) bucket;
+    }
+
+    // 区间 bucket 的结束时间（微秒）
+    public long bucketEndUs(int bucket) {
+        return (bucket + 1) * durationUs / buckets;
+    }
+
+    /**
+     * 将一段归一化的交错 PCM 中 [fromFrame, toFrame) 范围内的帧累加进对应区间，多声道按绝对值平均混为单声道；
+     * 启用了声道统计时同时累加到各声道自己的归约器。
+     *
+     * @param pcm          交错样本（-1.0~1.0），见 {@link PcmReader}
+     * @param channelCount 声道数
+     * @param startUs      第 0 帧的时间戳
+     * @param sampleRate   采样率
+     */
+    public void addFrames(float[] pcm, int fromFrame, int toFrame, int channelCount, long startUs, int sampleRate) {
+        int frame = fromFrame;
+        while (frame < toFrame) {
+            long timeUs = startUs + frame * 1_000_000L / sampleRate;
+            int bucket = bucketForTime(timeUs);
+            int end = toFrame;
+            if (bucket < buckets - 1) {
+                // 当前区间内最后一帧之后的位置：startUs + f / sampleRate >= bucketEndUs
+                long boundary = ((bucketEndUs(bucket) - startUs) * sampleRate + 999_999L) / 1_000_000L;
+                end = (int) Math.max(frame + 1, Math.min(toFrame, boundary));
+            }
+            addFramesToBucket(bucket, pcm, frame, end, channelCount);
+            frame = end;
+        }
+    }
+
+    /**
+     * 与 {@link #addFrames} 相同，但按帧序号划分区间：绝对帧号 n 落在 n / sampleRate 秒所在的区间，
+     * 与从哪一帧开始累加无关，因此分块并行与串行扫描的区间划分完全一致。
+     *
+     * @param firstFrame pcm 中第 0 帧在整个文件中的帧号
+     */
+    public void addFramesAt(long firstFrame, float[] pcm, int fromFrame, int toFrame, int channelCount,
+                            int sampleRate) {
+        int frame = fromFrame;
+        while (frame < toFrame) {
+            long absolute = firstFrame + frame;
+            int bucket = bucketForTime(absolute * 1_000_000L / sampleRate);
+            int end = toFrame;
+            if (bucket < buckets - 1) {
+                end = (int) Math.min(toFrame, firstFrameOf(bucket + 1, sampleRate) - firstFrame);
+            }
+            addFramesToBucket(bucket, pcm, frame, end, channelCount);
+            frame = end;
+        }
+    }
+
+    // 落在区间 bucket 内的第一帧的帧号：满足 bucketForTime(n * 1000000 / sampleRate) >= bucket 的最小 n
+    private long firstFrameOf(int bucket, int sampleRate) {
+        long timeUs = (bucket * durationUs + buckets - 1) / buckets;
+        return (timeUs * sampleRate + 999_999L) / 1_000_000L;
+    }
+
+    /**
+     * 不按时间划分，把 [fromFrame, toFrame) 全部累加进指定区间（稀疏采样时用窗口估计整个区间）。
+     */
+    public void addFramesToBucket(int bucket, float[] pcm, int fromFrame, int toFrame, int channelCount) {
+        accumulate(bucket, pcm, fromFrame, toFrame, channelCount, 0, channelCount);
+        if (channels != null) {
+            int tracked = Math.min(channelCount, channels.length);
+            for (int c = 0; c < tracked; c++) {
+                channels[c].accumulate(bucket, pcm, fromFrame, toFrame, channelCount, c, 1);
+            }
+        }
+    }
+
+    // 每帧取 [firstChannel, firstChannel + mixChannels) 这几个声道平均后累加
+    private void accumulate(int bucket, float[] pcm, int fromFrame, int toFrame, int channelCount,
+                            int firstChannel, int mixChannels) {
+        float channelScale = 1f / mixChannels;
+        double bucketSum = 0;
+        double bucketSquares = 0;
+        float bucketPeak = peak[bucket];
+        float bucketMin = min[bucket];
+        float bucketMax = max[bucket];
+        for (int f = fromFrame; f < toFrame; f++) {
+            float sum = 0;
+            float signed = 0;
+            for (int c = 0, i = f * channelCount + firstChannel; c < mixChannels; c++, i++) {
+                float sample = pcm[i];
+                sum += Math.abs(sample);
+                signed += sample;
+            }
+            float value = sum * channelScale;
+            bucketSum += value;
+            bucketSquares += value * value;
+            if (value > bucketPeak) bucketPeak = value;
+            signed *= channelScale;
+            if (signed < bucketMin) bucketMin = signed;
+            if (signed > bucketMax) bucketMax = signed;
+        }
+        sumAbs[bucket] += bucketSum;
+        sumSquares[bucket] += bucketSquares;
+        peak[bucket] = bucketPeak;
+        min[bucket] = bucketMin;
+        max[bucket] = bucketMax;
+        count[bucket] += toFrame - fromFrame;
+    }
+
+    /**
+     * 合并另一个相同划分的归约器（如分段并行解码的部分结果）。按固定顺序合并可保证结果确定。
+     */
+    public void merge(WaveformReducer other) {
+        if (other.buckets != buckets || other.durationUs != durationUs
+                || other.getTrackedChannels() != getTrackedChannels()) {
+            throw new IllegalArgumentException("reducer layout mismatch");
+        }
+        for (int c = 0; c < getTrackedChannels(); c++) {
+            channels[c].merge(other.channels[c]);
+        }
+        for (int i = 0; i < buckets; i++) {
+            sumAbs[i] += other.sumAbs[i];
+            sumSquares[i] += other.sumSquares[i];
+            if (other.peak[i] > peak[i]) peak[i] = other.peak[i];
+            if (other.min[i] < min[i]) min[i] = other.min[i];
+            if (other.max[i] > max[i]) max[i] = other.max[i];
+            count[i] += other.count[i];
+        }
+    }
+
+    /**
+     * 清空所有累加结果（解码出错后重新开始时使用）。
+     */
+    public void clear() {
+        Arrays.fill(sumAbs, 0);
+        Arrays.fill(sumSquares, 0);
+        Arrays.fill(peak, 0);
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        Arrays.fill(count, 0);
+        for (int c = 0; c < getTrackedChannels(); c++) {
+            channels[c].clear();
+        }
+    }
+
+    public boolean isEmpty() {
+        for (int c : count) {
+            if (c > 0) return false;
+        }
+        return true;
+    }
+
+    // 区间内带符号样本的最小值（-1.0~1.0），空区间为 0
+    public float minAt(int bucket) {
+        return count[bucket] > 0 ? min[bucket] : 0;
+    }
+
+    public float maxAt(int bucket) {
+        return count[bucket] > 0 ? max[bucket] : 0;
+    }
+
+    // 区间内样本的均方值，未经静音阈值处理
+    public double meanSquareAt(int bucket) {
+        int n = count[bucket];
+        return n > 0 ? sumSquares[bucket] / n : 0;
+    }
+
+    public double valueAt(int bucket, String type) {
+        int n = count[bucket];
+        if (n == 0) return 0;
+
+        double value;
+        switch (type) {
+            case "peak":
+                value = peak[bucket];
+                break;
+            case "rms":
+                value = Math.sqrt(sumSquares[bucket] / n);
+                break;
+            case "logarithmic":
+                double avg = sumAbs[bucket] / n * MAX_AMPLITUDE;
+                value = Math.log10(1 + avg) / Math.log10(1 + MAX_AMPLITUDE);
+                break;
+            case "amplitude":
+            default:
+                value = sumAbs[bucket] / n;
+                break;
+        }
+        return (value < SILENCE_THRESHOLD) ? 0 : value;
+    }
+}
@@ -0,0 +1,201 @@
+package com.audiowaveform;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * getWaveform 的请求参数。
+ */
+class WaveformRequest {
+
+    private static final long DEFAULT_PROGRESS_INTERVAL_MS = 100;
+    private static final int DEFAULT_WINDOW_FRAMES = 4096;
+    // 按声道统计时最多统计的声道数
+    static final int MAX_TRACKED_CHANNELS = 8;
+
+    String url;
+    int samples;
+    String type;
+    String format;
+    // 需要额外返回的指标（见 WaveformMetrics.NAMES），为空时只返回 type 对应的 values
+    List<String> metrics = new ArrayList<>();
+    boolean perChannel;
+    boolean useCache;
+    int segments;
+    // exact：完整解码；fast：每个区间只解码 windowFrames 帧
+    String mode;
+    int windowFrames;
+    int priority;
+    String jobId;
+    boolean progress;
+    // 是否在结果中附带作业各阶段的耗时统计
+    boolean stats;
+    long progressIntervalMs;
+    // 裸 PCM 文件的格式，未提供时按扩展名/文件头判断
+    int pcmEncoding = -1;
+    int pcmChannels;
+    int pcmSampleRate;
+
+    static WaveformRequest fromOptions(ReadableMap options, String fallbackJobId) {
+        WaveformRequest request = new WaveformRequest();
+        request.url = options.hasKey("url") ? options.getString("url") : null;
+        int samples = options.hasKey("samples") ? options.getInt("samples") : 200;
+        request.samples = Math.max(1, Math.min(500, samples));
+        request.type = options.hasKey("type") ? options.getString("type") : "amplitude";
+        // packed：float32 小端字节的 base64；points：旧版逐点对象数组
+        request.format = options.hasKey("format") && "points".equals(options.getString("format"))
+                ? "points" : "packed";
+        request.useCache = !options.hasKey("cache") || options.getBoolean("cache");
+
+        if (options.hasKey("metrics") && !options.isNull("metrics")) {
+            ReadableArray metrics = options.getArray("metrics");
+            for (int i = 0; i < metrics.size(); i++) {
+                String metric = metrics.getString(i);
+                if (WaveformMetrics.indexOf(metric) >= 0 && !request.metrics.contains(metric)) {
+                    request.metrics.add(metric);
+                }
+            }
+        }
+        request.perChannel = options.hasKey("channels") && options.getBoolean("channels");
+
+        boolean parallel = options.hasKey("parallel") && options.getBoolean("parallel");
+        request.segments = !parallel ? 1
+                : options.hasKey("segments") ? Math.max(1, options.getInt("segments")) : CodecLimits.workerCount();
+
+        request.mode = options.hasKey("mode") && "fast".equals(options.getString("mode")) ? "fast" : "exact";
+        request.windowFrames = options.hasKey("windowFrames")
+                ? Math.max(1, options.getInt("windowFrames")) : DEFAULT_WINDOW_FRAMES;
+
+        request.priority = options.hasKey("priority") ? options.getInt("priority") : 0;
+        request.jobId = options.hasKey("jobId") ? options.getString("jobId") : fallbackJobId;
+        request.progress = options.hasKey("progress") && options.getBoolean("progress");
+        request.stats = options.hasKey("stats") && options.getBoolean("stats");
+        request.progressIntervalMs = options.hasKey("progressInterval")
+                ? Math.max(16, options.getInt("progressInterval")) : DEFAULT_PROGRESS_INTERVAL_MS;
+
+        if (options.hasKey("pcmFormat") && !options.isNull("pcmFormat")) {
+            ReadableMap pcm = options.getMap("pcmFormat");
+            request.pcmSampleRate = pcm.hasKey("sampleRate") ? pcm.getInt("sampleRate") : 44100;
+            request.pcmChannels = pcm.hasKey("channels") ? pcm.getInt("channels") : 1;
+            request.pcmEncoding = pcmEncoding(pcm.hasKey("encoding") ? pcm.getString("encoding") : "16bit");
+        }
+        return request;
+    }
+
+    /**
+     * 本地文件的默认请求（exact 模式、使用缓存），与只传 url、samples、type 的 getWaveform 结果和缓存一致。
+     */
+    static WaveformRequest forLocalFile(String url, int samples, String type, String jobId) {
+        WaveformRequest request = new WaveformRequest();
+        request.url = url;
+        request.samples = Math.max(1, Math.min(500, samples));
+        request.type = type;
+        request.format = "packed";
+        request.useCache = true;
+        request.segments = 1;
+        request.mode = "exact";
+        request.windowFrames = DEFAULT_WINDOW_FRAMES;
+        request.jobId = jobId;
+        request.progressIntervalMs = DEFAULT_PROGRESS_INTERVAL_MS;
+        return request;
+    }
+
+    private static int pcmEncoding(String name) {
+        switch (name) {
+            case "8bit":
+                return PcmReader.ENCODING_PCM_8BIT;
+            case "24bit":
+                return PcmReader.ENCODING_PCM_24BIT_PACKED;
+            case "32bit":
+                return PcmReader.ENCODING_PCM_32BIT;
+            case "float":
+                return PcmReader.ENCODING_PCM_FLOAT;
+            case "16bit":
+            default:
+                return PcmReader.ENCODING_PCM_16BIT;
+        }
+    }
+
+    /**
+     * 未压缩 WAV / 裸 PCM 总是完整读取，fast 请求改为 exact，使结果中的 mode 和缓存键与实际计算一致。
+     *
+     * @param pcmInput {@link #isPcmInput(String)} 对本请求 url 的结果
+     */
+    void resolveMode(boolean pcmInput) {
+        if (isFast() && pcmInput) {
+            mode = "exact";
+        }
+    }
+
+    // isPcmInput 的结果只取决于 url 和是否指定了裸 PCM 格式，相同的请求共用一次文件头读取
+    String modeKey() {
+        return url + "|" + (pcmEncoding >= 0);
+    }
+
+    // url 是否为走快速路径的本地 WAV / 裸 PCM 文件
+    boolean isPcmInput(String url) {
+        File file = localFile(url);
+        if (file == null) return false;
+        if (pcmEncoding >= 0) return true;
+        try {
+            return WavFileReader.parse(file) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // 本地文件路径，非本地地址返回 null
+    File localFile() {
+        return localFile(url);
+    }
+
+    static File localFile(String url) {
+        String path = url.startsWith("file://") ? url.substring(7) : url;
+        File file = new File(path);
+        return file.isFile() ? file : null;
+    }
+
+    // 相同文件、相同参数的请求合并为一个作业
+    String jobKey() {
+        return url + "|" + samples + "|" + resultVariant() + "|" + useCache;
+    }
+
+    boolean isFast() {
+        return "fast".equals(mode);
+    }
+
+    // 一次解码产出全部指标，结果只与是否按声道统计、解码模式及裸 PCM 的格式有关，与 type 无关
+    String resultVariant() {
+        return resultVariant(isFast());
+    }
+
+    String resultVariant(boolean fast) {
+        String variant = channelMetrics() ? "metrics+channels" : "metrics";
+        if (fast) {
+            variant += "@fast" + windowFrames;
+        }
+        // 同一个裸 PCM 文件按不同格式解释时结果不同
+        if (pcmEncoding >= 0) {
+            variant += "|pcm:" + pcmEncoding + "/" + pcmChannels + "/" + pcmSampleRate;
+        }
+        return variant;
+    }
+
+    // 只有请求了指标时才返回各声道的结果，只设置 channels 不需要按声道统计
+    boolean channelMetrics() {
+        return perChannel && !metrics.isEmpty();
+    }
+
+    int trackedChannels(int channelCount) {
+        return channelMetrics() ? Math.min(channelCount, MAX_TRACKED_CHANNELS) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "URL:" + url + ", 采样点数:" + samples + ", 类型:" + type + ", 任务:" + jobId + ", 优先级:" + priority;
+    }
+}
@@ -0,0 +1,199 @@
+package com.audiowaveform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 波形任务调度器：有界线程池 + 优先级队列。
+ * 每个请求对应一个任务 ID，相同 key 的请求合并为同一个作业执行，所有请求都取消后作业才会被取消。
+ */
+public class WaveformScheduler<R> {
+
+    public interface Task<R> {
+        R run(AtomicBoolean cancelled) throws Exception;
+    }
+
+    public interface Listener<R> {
+        void onSuccess(R result);
+
+        void onError(Exception error);
+
+        void onCancelled();
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 以下状态均由 this 保护
+    private final Map<String, Job> jobsByKey = new HashMap<>();
+    private final Map<String, Job> jobsById = new HashMap<>();
+
+    public WaveformScheduler(int workers) {
+        executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交请求。若已有相同 key 的作业在排队或执行，则合并到该作业，并按需提升其优先级。
+     * jobId 与未完成的请求重复时不提交，返回 false，listener 不会被调用。
+     */
+    public boolean submit(String jobId, String key, int priority, Task<R> task, Listener<R> listener) {
+        synchronized (this) {
+            if (jobsById.containsKey(jobId)) {
+                return false;
+            }
+            Job job = jobsByKey.get(key);
+            if (job != null && !job.cancelled.get()) {
+                job.listeners.put(jobId, listener);
+                jobsById.put(jobId, job);
+                if (priority > job.priority && executor.remove(job)) {
+                    job.priority = priority;
+                    executor.execute(job);
+                }
+                return true;
+            }
+
+            job = new Job(key, priority, sequence.getAndIncrement(), task);
+            job.listeners.put(jobId, listener);
+            jobsByKey.put(key, job);
+            jobsById.put(jobId, job);
+            executor.execute(job);
+            return true;
+        }
+    }
+
+    /**
+     * 取消单个请求；合并作业中没有剩余请求时停止该作业。
+     */
+    public boolean cancel(String jobId) {
+        Listener<R> listener;
+        synchronized (this) {
+            Job job = jobsById.remove(jobId);
+            if (job == null) return false;
+            listener = job.listeners.remove(jobId);
+            if (job.listeners.isEmpty()) {
+                abort(job);
+            }
+        }
+        if (listener != null) listener.onCancelled();
+        return true;
+    }
+
+    public void cancelAll() {
+        List<Listener<R>> listeners = new ArrayList<>();
+        synchronized (this) {
+            for (Job job : new ArrayList<>(jobsByKey.values())) {
+                listeners.addAll(job.listeners.values());
+                job.listeners.clear();
+                abort(job);
+            }
+            jobsById.clear();
+        }
+        for (Listener<R> listener : listeners) {
+            listener.onCancelled();
+        }
+    }
+
+    /**
+     * 当前合并到 key 对应作业上的所有任务 ID。
+     */
+    public synchronized List<String> jobIds(String key) {
+        Job job = jobsByKey.get(key);
+        return job != null ? new ArrayList<>(job.listeners.keySet()) : new ArrayList<String>();
+    }
+
+    public synchronized boolean isBusy() {
+        return !jobsByKey.isEmpty();
+    }
+
+    public synchronized int pendingCount() {
+        return jobsByKey.size();
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    // 调用方需持有 this
+    private void abort(Job job) {
+        job.cancelled.set(true);
+        executor.remove(job);
+        if (jobsByKey.get(job.key) == job) {
+            jobsByKey.remove(job.key);
+        }
+    }
+
+    private synchronized List<Listener<R>> finish(Job job) {
+        if (jobsByKey.get(job.key) == job) {
+            jobsByKey.remove(job.key);
+        }
+        List<Listener<R>> listeners = new ArrayList<>(job.listeners.values());
+        for (String id : job.listeners.keySet()) {
+            jobsById.remove(id);
+        }
+        job.listeners.clear();
+        return listeners;
+    }
+
+    private class Job implements Runnable, Comparable<Job> {
+        final String key;
+        final long order;
+        final Task<R> task;
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        final LinkedHashMap<String, Listener<R>> listeners = new LinkedHashMap<>();
+        volatile int priority;
+
+        Job(String key, int priority, long order, Task<R> task) {
+            this.key = key;
+            this.priority = priority;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled.get()) return;
+
+            R result = null;
+            Exception error = null;
+            try {
+                result = task.run(cancelled);
+            } catch (Exception e) {
+                error = e;
+            } catch (Throwable e) {
+                // OutOfMemoryError 等也要结束作业，否则相同 key 的请求会一直合并到这个作业上
+                error = new WaveformException("音频解析失败: " + e);
+            }
+
+            List<Listener<R>> targets = finish(this);
+            for (Listener<R> listener : targets) {
+                if (cancelled.get()) {
+                    listener.onCancelled();
+                } else if (error != null) {
+                    listener.onError(error);
+                } else {
+                    listener.onSuccess(result);
+                }
+            }
+        }
+
+        // 优先级高的先执行，同优先级先到先得
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
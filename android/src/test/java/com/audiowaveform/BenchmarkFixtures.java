@@ -0,0 +1,41 @@
+package com.audiowaveform;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 基准测试用的生成夹具，按参数命名缓存在磁盘上，多次运行只生成一次。
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    // 可用 -Dbenchmark.dir 指定，默认在构建目录下
+    static File directory() {
+        return new File(System.getProperty("benchmark.dir", "build/benchmark-fixtures"));
+    }
+
+    /**
+     * durationSec 秒的 WAV 文件（内容见 {@link WavFixtures#signal}）。
+     */
+    static File wav(int bits, int channels, int sampleRate, int durationSec) throws IOException {
+        File dir = directory();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建夹具目录: " + dir);
+        }
+        String name = "wav-" + (bits < 0 ? "f" + -bits : bits) + "-" + channels + "ch-" + sampleRate + "-"
+                + durationSec + "s.wav";
+        File file = new File(dir, name);
+        long frames = (long) durationSec * sampleRate;
+        long expected = 44 + frames * channels * (Math.abs(bits) / 8);
+        if (file.length() == expected) return file;
+
+        File tmp = new File(dir, name + ".tmp");
+        WavFixtures.write(tmp, bits, channels, sampleRate, frames);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("写入夹具失败: " + file);
+        }
+        return file;
+    }
+}
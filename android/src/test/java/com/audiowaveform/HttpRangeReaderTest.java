@@ -0,0 +1,298 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HttpRangeReaderTest {
+
+    private static final int BLOCK = HttpByteCache.BLOCK_SIZE;
+    private static final long NO_REVALIDATE = Long.MAX_VALUE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String url;
+
+    // 服务端状态，由处理线程读取
+    private volatile byte[] content;
+    private volatile String etag = "\"v1\"";
+    private volatile boolean rangeSupported = true;
+    private volatile int status = 200;
+    // 每写出 throttleBytes 字节暂停 throttleMs
+    private volatile int throttleBytes = 0;
+    private volatile int throttleMs = 0;
+    // 大于 0 时下一个响应只写出这么多字节就断开
+    private volatile int dropAfterBytes = 0;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException {
+        content = bytes(BLOCK * 5 + 123, 1);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/audio", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/audio";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readsRangesAndReusesCache() throws Exception {
+        HttpByteCache cache = newCache(NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 2)) {
+            assertEquals(content.length, reader.getSize());
+            assertArrayEquals(content, readAll(reader));
+        }
+        int downloaded = requests.get();
+        // 文件大小 + 每次最多预读 2 块
+        assertTrue("requests: " + downloaded, downloaded >= 3 && downloaded <= 5);
+
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 2)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+        assertEquals(downloaded, requests.get());
+    }
+
+    @Test
+    public void completesThrottledResponses() throws Exception {
+        throttleBytes = 4096;
+        throttleMs = 2;
+        HttpByteCache cache = newCache(NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+    }
+
+    // 连接中途断开后从当前块重新请求，已写入的块不再下载
+    @Test
+    public void resumesInterruptedDownload() throws Exception {
+        dropAfterBytes = BLOCK * 2 + 100;
+        HttpByteCache cache = newCache(NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+        assertEquals(0, dropAfterBytes);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void readsWithoutRangeSupport() throws Exception {
+        rangeSupported = false;
+        HttpByteCache cache = newCache(NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 2)) {
+            assertEquals(content.length, reader.getSize());
+            assertArrayEquals(content, readAll(reader));
+        }
+    }
+
+    @Test
+    public void revalidatesCachedFile() throws Exception {
+        HttpByteCache cache = newCache(0);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+
+        // 未变化：只有一次 304 的核对请求
+        int before = requests.get();
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+        assertEquals(before + 1, requests.get());
+        assertEquals(1, notModified.get());
+
+        // 大小不变、ETag 变化：丢弃旧块重新下载
+        content = bytes(content.length, 7);
+        etag = "\"v2\"";
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    public void usesCacheWhenOffline() throws Exception {
+        HttpByteCache cache = newCache(0);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            readAll(reader);
+        }
+        server.stop(0);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK * 8)) {
+            assertArrayEquals(content, readAll(reader));
+        }
+    }
+
+    @Test
+    public void reportsErrorStatus() throws Exception {
+        status = 404;
+        try {
+            new HttpRangeReader(newCache(NO_REVALIDATE), url, BLOCK).close();
+            fail();
+        } catch (HttpRangeReader.StatusException expected) {
+            assertEquals(1, requests.get());
+        }
+    }
+
+    // 数据文件按完整大小预分配，占用只计算已下载的块
+    @Test
+    public void countsCachedBlocks() throws Exception {
+        content = bytes(BLOCK * 64, 3);
+        File directory = folder.newFolder();
+        HttpByteCache cache = new HttpByteCache(directory, Long.MAX_VALUE, NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url, BLOCK)) {
+            byte[] buffer = new byte[BLOCK];
+            reader.readAt(BLOCK * 10L, buffer, 0, buffer.length);
+            long open = cache.getDiskBytes();
+            assertTrue("open: " + open, open >= BLOCK * 2 && open < BLOCK * 3);
+        }
+        long closed = new HttpByteCache(directory, Long.MAX_VALUE).getDiskBytes();
+        assertTrue("closed: " + closed, closed >= BLOCK * 2 && closed < BLOCK * 3);
+    }
+
+    // 超出上限时淘汰最久未使用的文件
+    @Test
+    public void trimsByCachedBlocks() throws Exception {
+        HttpByteCache cache = new HttpByteCache(folder.newFolder(), BLOCK * 9L, NO_REVALIDATE);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url + "?a", BLOCK)) {
+            readAll(reader);
+        }
+        long first = cache.getDiskBytes();
+        assertTrue("first: " + first, first > BLOCK * 5 && first < BLOCK * 7);
+        Thread.sleep(20);
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url + "?b", BLOCK)) {
+            readAll(reader);
+        }
+        assertTrue(cache.getDiskBytes() <= BLOCK * 9L);
+        int before = requests.get();
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url + "?b", BLOCK)) {
+            readAll(reader);
+        }
+        assertEquals(before, requests.get());
+    }
+
+    // 内存中累计的占用与重新扫描目录的结果一致，远程文件变化后旧块不再计入
+    @Test
+    public void runningTotalMatchesScan() throws Exception {
+        File directory = folder.newFolder();
+        HttpByteCache cache = new HttpByteCache(directory, Long.MAX_VALUE, 0);
+        for (String suffix : new String[]{"?a", "?b", "?a"}) {
+            try (HttpRangeReader reader = new HttpRangeReader(cache, url + suffix, BLOCK)) {
+                readAll(reader);
+            }
+        }
+        content = bytes(BLOCK * 2, 9);
+        etag = "\"v2\"";
+        try (HttpRangeReader reader = new HttpRangeReader(cache, url + "?a", BLOCK)) {
+            byte[] buffer = new byte[BLOCK];
+            reader.readAt(0, buffer, 0, buffer.length);
+        }
+
+        long total = cache.getDiskBytes();
+        assertEquals(new HttpByteCache(directory, Long.MAX_VALUE).getDiskBytes(), total);
+        assertTrue("total: " + total, total > BLOCK * 6 && total < BLOCK * 8);
+
+        cache.clear();
+        assertEquals(0, cache.getDiskBytes());
+        assertEquals(0, directory.list().length);
+    }
+
+    private HttpByteCache newCache(long revalidateIntervalMs) throws IOException {
+        return new HttpByteCache(folder.newFolder(), Long.MAX_VALUE, revalidateIntervalMs);
+    }
+
+    private static byte[] readAll(HttpRangeReader reader) throws IOException {
+        byte[] result = new byte[(int) reader.getSize()];
+        int position = 0;
+        while (position < result.length) {
+            // 不按块对齐的读取
+            int read = reader.readAt(position, result, position, Math.min(10_000, result.length - position));
+            assertTrue(read > 0);
+            position += read;
+        }
+        assertEquals(-1, reader.readAt(position, new byte[1], 0, 1));
+        return result;
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + seed * (i >> 8));
+        }
+        return data;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            byte[] data = content;
+            String tag = etag;
+            if (status != 200) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            if (tag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", tag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            int start = 0;
+            int end = data.length - 1;
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            exchange.getResponseHeaders().set("ETag", tag);
+            if (rangeSupported && range != null && range.startsWith("bytes=")) {
+                String[] bounds = range.substring(6).split("-");
+                start = Integer.parseInt(bounds[0]);
+                end = Math.min(end, Integer.parseInt(bounds[1]));
+                exchange.getResponseHeaders().set("Content-Range",
+                        "bytes " + start + "-" + end + "/" + data.length);
+                exchange.sendResponseHeaders(206, end - start + 1);
+            } else {
+                exchange.sendResponseHeaders(200, data.length);
+            }
+
+            int limit = end + 1;
+            if (dropAfterBytes > 0) {
+                limit = Math.min(limit, start + dropAfterBytes);
+                dropAfterBytes = 0;
+            }
+            OutputStream body = exchange.getResponseBody();
+            int step = throttleBytes > 0 ? throttleBytes : limit - start;
+            for (int position = start; position < limit; position += step) {
+                body.write(data, position, Math.min(step, limit - position));
+                body.flush();
+                if (throttleMs > 0) Thread.sleep(throttleMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.audiowaveform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 把一分钟的生成 WAV 数据按 64KB 一块读成 float 样本，覆盖各位深。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PcmReaderBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BLOCK_BYTES = 64 * 1024;
+
+    // -32 为 32 位浮点
+    @Param({"8", "16", "24", "32", "-32"})
+    public int bits;
+
+    @Param({"2"})
+    public int channels;
+
+    private ByteBuffer data;
+    private PcmReader reader;
+    private int blockBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        File file = BenchmarkFixtures.wav(bits, channels, SAMPLE_RATE, 60);
+        WavFileReader.Format format = WavFileReader.parse(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            data = ByteBuffer.allocateDirect((int) format.dataLength).order(ByteOrder.LITTLE_ENDIAN);
+            while (data.hasRemaining()) {
+                if (channel.read(data, format.dataOffset + data.position()) < 0) break;
+            }
+        }
+        reader = new PcmReader(format.encoding, channels);
+        blockBytes = BLOCK_BYTES / format.frameSize() * format.frameSize();
+    }
+
+    @Benchmark
+    public long read() {
+        long frames = 0;
+        int length = data.capacity();
+        for (int offset = 0; offset < length; offset += blockBytes) {
+            frames += reader.read(data, offset, Math.min(blockBytes, length - offset), ByteOrder.LITTLE_ENDIAN);
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,101 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class ProgressChunksTest {
+
+    private static final int BUCKETS = 8;
+
+    private final WaveformReducer reducer = rampReducer();
+    private final ProgressChunks chunks = new ProgressChunks(reducer);
+    private final Map<String, String> subscribed = new HashMap<>();
+    private final List<String> sent = new ArrayList<>();
+
+    // 合并进来较晚的订阅者先收到此前已完成的全部区间，之后与其他订阅者同步
+    @Test
+    public void lateSubscriberReceivesCompletedPrefix() {
+        subscribed.put("a", "peak");
+        chunks.emit(Collections.singletonList("a"), subscribed, 3, recording());
+        chunks.emit(Collections.singletonList("a"), subscribed, 5, recording());
+        assertEquals(Arrays.asList("a 0-3", "a 3-5"), sent);
+
+        sent.clear();
+        subscribed.put("b", "peak");
+        chunks.emit(Arrays.asList("a", "b"), subscribed, 6, recording());
+        assertEquals(Arrays.asList("a 5-6", "b 0-6"), sent);
+
+        sent.clear();
+        chunks.emit(Arrays.asList("a", "b"), subscribed, BUCKETS, recording());
+        assertEquals(Arrays.asList("a 6-8", "b 6-8"), sent);
+    }
+
+    @Test
+    public void chunkValuesFollowEachSubscribersType() {
+        subscribed.put("a", "peak");
+        subscribed.put("b", "rms");
+        Map<String, double[]> values = new HashMap<>();
+        chunks.emit(Arrays.asList("a", "b"), subscribed, 4, (jobId, start, end, chunk) -> {
+            values.put(jobId, chunk);
+            return true;
+        });
+        assertArrayEquals(expected("peak", 0, 4), values.get("a"), 0);
+        assertArrayEquals(expected("rms", 0, 4), values.get("b"), 0);
+    }
+
+    // 发送失败时位置不前进，下次重发同一段
+    @Test
+    public void failedSendIsRetried() {
+        subscribed.put("a", "peak");
+        chunks.emit(Collections.singletonList("a"), subscribed, 3, (jobId, start, end, chunk) -> false);
+        chunks.emit(Collections.singletonList("a"), subscribed, 4, recording());
+        assertEquals(Collections.singletonList("a 0-4"), sent);
+    }
+
+    // 没有请求进度的任务不发送；离开作业的任务位置被丢弃，重新加入时从头开始
+    @Test
+    public void skipsUnsubscribedAndForgetsRemovedJobs() {
+        subscribed.put("a", "peak");
+        chunks.emit(Arrays.asList("a", "quiet"), subscribed, 4, recording());
+        assertEquals(Collections.singletonList("a 0-4"), sent);
+
+        sent.clear();
+        chunks.emit(Collections.<String>emptyList(), subscribed, 5, recording());
+        chunks.emit(Collections.singletonList("a"), subscribed, 6, recording());
+        assertEquals(Collections.singletonList("a 0-6"), sent);
+    }
+
+    private ProgressChunks.Sink recording() {
+        return (jobId, start, end, chunk) -> {
+            assertEquals(end - start, chunk.length);
+            sent.add(jobId + " " + start + "-" + end);
+            return true;
+        };
+    }
+
+    private double[] expected(String type, int start, int end) {
+        double[] values = new double[end - start];
+        for (int i = start; i < end; i++) {
+            values[i - start] = reducer.valueAt(i, type);
+        }
+        return values;
+    }
+
+    // 区间 i 含两帧，幅度不同，peak 与 rms 取值不同
+    private static WaveformReducer rampReducer() {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, 1);
+        for (int b = 0; b < BUCKETS; b++) {
+            float level = (b + 1) / (float) BUCKETS;
+            reducer.addFramesToBucket(b, new float[]{level, level / 4}, 0, 2, 1);
+        }
+        return reducer;
+    }
+}
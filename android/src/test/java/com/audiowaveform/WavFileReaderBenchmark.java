@@ -0,0 +1,68 @@
+package com.audiowaveform;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * WAV 快速路径的完整耗时（映射、读取、归约、合并），对比串行扫描与分块并行。
+ * 夹具为 44.1kHz 16 位立体声，首次运行时生成并保留在 {@link BenchmarkFixtures#directory()}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class WavFileReaderBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+    private static final int BUCKETS = 200;
+
+    @Param({"60", "3600", "10800"})
+    public int durationSec;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private File file;
+    private WavFileReader.Format format;
+    private ExecutorService executor;
+    private int parallelism;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkFixtures.wav(16, CHANNELS, SAMPLE_RATE, durationSec);
+        format = WavFileReader.parse(file);
+        parallelism = Runtime.getRuntime().availableProcessors();
+        executor = parallel ? Executors.newFixedThreadPool(parallelism) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    @Benchmark
+    public WaveformReducer reduce() throws IOException, InterruptedException {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, format.durationUs());
+        WavFileReader.reduce(file, format, reducer, executor, parallelism, new AtomicBoolean(), null);
+        return reducer;
+    }
+}
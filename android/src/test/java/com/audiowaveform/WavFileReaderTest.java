@@ -0,0 +1,210 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WavFileReaderTest {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUCKETS = 200;
+    private static final String[] TYPES = {"amplitude", "rms", "peak"};
+
+    private static ExecutorService executor;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void parsesHeaders() throws Exception {
+        for (int bits : new int[]{8, 16, 24, 32, -32}) {
+            for (int channels = 1; channels <= 2; channels++) {
+                File file = WavFixtures.write(folder.newFile(), bits, channels, SAMPLE_RATE, 1000);
+                WavFileReader.Format format = WavFileReader.parse(file);
+                assertNotNull(format);
+                assertEquals(WavFixtures.encoding(bits), format.encoding);
+                assertEquals(channels, format.channelCount);
+                assertEquals(SAMPLE_RATE, format.sampleRate);
+                assertEquals(44, format.dataOffset);
+                assertEquals(1000, format.frameCount());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsNonWav() throws Exception {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        assertNull(WavFileReader.parse(file));
+    }
+
+    // 每种位深、声道数的结果与逐帧计算的参考值一致
+    @Test
+    public void matchesReference() throws Exception {
+        for (int bits : new int[]{8, 16, 24, 32, -32}) {
+            for (int channels = 1; channels <= 2; channels++) {
+                long frames = SAMPLE_RATE * 3L + 17;
+                File file = WavFixtures.write(folder.newFile(), bits, channels, SAMPLE_RATE, frames);
+                WavFileReader.Format format = WavFileReader.parse(file);
+                WaveformReducer reducer = new WaveformReducer(BUCKETS, format.durationUs(), channels);
+                WavFileReader.reduce(file, format, reducer, null, 1, new AtomicBoolean(), null);
+
+                WaveformReducer expected = reference(bits, channels, frames, format.durationUs());
+                String label = bits + " bit, " + channels + " ch";
+                assertSameValues(label, expected, reducer, 1e-6);
+                for (int c = 0; c < channels; c++) {
+                    assertSameValues(label + ", channel " + c, expected.channel(c), reducer.channel(c), 1e-6);
+                }
+            }
+        }
+    }
+
+    // 分块并行与串行扫描的区间划分相同，结果只有求和顺序带来的舍入差异
+    @Test
+    public void chunkedMatchesSerial() throws Exception {
+        for (int bits : new int[]{8, 16, 24, 32, -32}) {
+            for (int channels = 1; channels <= 2; channels++) {
+                int frameSize = Math.abs(bits) / 8 * channels;
+                // 超过 4 个最小分块，且帧数与区间、块边界都不对齐
+                long frames = 4_500_000L / frameSize + 7;
+                File file = WavFixtures.write(folder.newFile(), bits, channels, SAMPLE_RATE, frames);
+                WavFileReader.Format format = WavFileReader.parse(file);
+
+                WaveformReducer serial = new WaveformReducer(BUCKETS, format.durationUs(), channels);
+                WavFileReader.reduce(file, format, serial, null, 1, new AtomicBoolean(), null);
+                WaveformReducer chunked = new WaveformReducer(BUCKETS, format.durationUs(), channels);
+                WavFileReader.reduce(file, format, chunked, executor, 4, new AtomicBoolean(), null);
+
+                String label = bits + " bit, " + channels + " ch";
+                assertSameValues(label, serial, chunked, 1e-9);
+                for (int c = 0; c < channels; c++) {
+                    assertSameValues(label + ", channel " + c, serial.channel(c), chunked.channel(c), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsRawPcm() throws Exception {
+        File wav = WavFixtures.write(folder.newFile(), 16, 2, SAMPLE_RATE, SAMPLE_RATE + 3);
+        WavFileReader.Format parsed = WavFileReader.parse(wav);
+        WavFileReader.Format raw = new WavFileReader.Format(PcmReader.ENCODING_PCM_16BIT, 2, SAMPLE_RATE,
+                parsed.dataOffset, parsed.dataLength);
+
+        WaveformReducer expected = new WaveformReducer(BUCKETS, parsed.durationUs());
+        WavFileReader.reduce(wav, parsed, expected, null, 1, new AtomicBoolean(), null);
+        WaveformReducer actual = new WaveformReducer(BUCKETS, raw.durationUs());
+        WavFileReader.reduce(wav, raw, actual, null, 1, new AtomicBoolean(), null);
+        assertSameValues("raw", expected, actual, 0);
+    }
+
+    // 录音文件先写占位文件头、分块追加数据、最后回填长度，归约结果与一次写成的文件完全相同
+    @Test
+    public void streamedPcm16FileMatchesFixture() throws Exception {
+        for (int channels = 1; channels <= 2; channels++) {
+            long frames = SAMPLE_RATE * 2L + 5;
+            File fixture = WavFixtures.write(folder.newFile(), 16, channels, SAMPLE_RATE, frames);
+            WavFileReader.Format fixtureFormat = WavFileReader.parse(fixture);
+            File live = folder.newFile();
+            try (RandomAccessFile in = new RandomAccessFile(fixture, "r");
+                 RandomAccessFile out = new RandomAccessFile(live, "rw")) {
+                FileChannel source = in.getChannel();
+                FileChannel target = out.getChannel();
+                WavFileReader.writePcm16Header(target, channels, SAMPLE_RATE, 0);
+                // 块长不是帧长的整数倍
+                ByteBuffer block = ByteBuffer.allocate(4093);
+                source.position(fixtureFormat.dataOffset);
+                while (source.read(block) > 0) {
+                    block.flip();
+                    while (block.hasRemaining()) {
+                        target.write(block);
+                    }
+                    block.clear();
+                }
+                WavFileReader.writePcm16Header(target, channels, SAMPLE_RATE,
+                        target.size() - WavFileReader.PCM16_HEADER_SIZE);
+            }
+
+            WavFileReader.Format format = WavFileReader.parse(live);
+            assertNotNull(format);
+            assertEquals(WavFileReader.PCM16_HEADER_SIZE, format.dataOffset);
+            assertEquals(frames, format.frameCount());
+            String label = channels + " ch";
+            assertArrayEquals(label, packed(fixture, fixtureFormat), packed(live, format), 0f);
+        }
+    }
+
+    @Test
+    public void reportsProgress() throws Exception {
+        File file = WavFixtures.write(folder.newFile(), 16, 1, SAMPLE_RATE, SAMPLE_RATE * 2L);
+        WavFileReader.Format format = WavFileReader.parse(file);
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, format.durationUs());
+        double[] last = new double[2];
+        WavFileReader.reduce(file, format, reducer, null, 1, new AtomicBoolean(), (fraction, completed) -> {
+            last[0] = fraction;
+            last[1] = completed;
+        });
+        assertEquals(1.0, last[0], 0);
+        assertEquals(BUCKETS - 1, last[1], 0);
+    }
+
+    // 逐帧按 n / sampleRate 所在区间累加生成的样本
+    private static WaveformReducer reference(int bits, int channels, long frames, long durationUs) {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, durationUs, channels);
+        float[] frame = new float[channels];
+        for (long n = 0; n < frames; n++) {
+            for (int c = 0; c < channels; c++) {
+                frame[c] = WavFixtures.decoded(bits, WavFixtures.signal(n, c, SAMPLE_RATE));
+            }
+            long bucket = Math.min(BUCKETS - 1, n * 1_000_000L / SAMPLE_RATE * BUCKETS / durationUs);
+            reducer.addFramesToBucket((int) bucket, frame, 0, 1, channels);
+        }
+        return reducer;
+    }
+
+    // 与 getWaveform 读取 WAV 时相同的分块并行归约
+    private static float[] packed(File file, WavFileReader.Format format) throws Exception {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, format.durationUs(), format.channelCount);
+        WavFileReader.reduce(file, format, reducer, executor, 4, new AtomicBoolean(), null);
+        return WaveformMetrics.fromReducer(reducer).toPacked();
+    }
+
+    private static void assertSameValues(String label, WaveformReducer expected, WaveformReducer actual,
+                                         double delta) {
+        for (int i = 0; i < BUCKETS; i++) {
+            for (String type : TYPES) {
+                assertEquals(label + ", " + type + " #" + i, expected.valueAt(i, type), actual.valueAt(i, type), delta);
+            }
+            assertEquals(label + ", min #" + i, expected.minAt(i), actual.minAt(i), 0);
+            assertEquals(label + ", max #" + i, expected.maxAt(i), actual.maxAt(i), 0);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.audiowaveform;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 测试和基准用的 WAV 文件：内容由帧号确定，可按需生成任意时长，并能算出 PcmReader 读到的样本值。
+ */
+final class WavFixtures {
+
+    private WavFixtures() {}
+
+    // 第 frame 帧第 channel 声道的原始信号（-1.0~1.0）：包络调制的正弦加伪随机噪声
+    static double signal(long frame, int channel, int sampleRate) {
+        double t = frame / (double) sampleRate;
+        double envelope = 0.15 + 0.7 * Math.abs(Math.sin(2 * Math.PI * 0.37 * t + channel));
+        double tone = Math.sin(2 * Math.PI * (220 + 110 * channel) * t);
+        double noise = ((frame * 2654435761L + channel * 40503L) % 1000) / 1000.0 - 0.5;
+        return Math.max(-1, Math.min(1, envelope * (0.8 * tone + 0.2 * noise)));
+    }
+
+    /**
+     * 按位深量化后再由 {@link PcmReader} 读回的样本值。
+     *
+     * @param bits 8/16/24/32 为整数 PCM，-32 表示 32 位浮点
+     */
+    static float decoded(int bits, double value) {
+        switch (bits) {
+            case 8:
+                return (float) (int) Math.round(value * 127) * (1f / 127f);
+            case 16:
+                return (float) (int) Math.round(value * 32767) * (1f / 32767f);
+            case 24:
+                return (float) (int) Math.round(value * 8388607) * (1f / 8388607f);
+            case 32:
+                return (float) (int) Math.round(value * 2147483647.0) * (1f / 2147483647f);
+            case -32:
+                return (float) value;
+            default:
+                throw new IllegalArgumentException("bits: " + bits);
+        }
+    }
+
+    static int encoding(int bits) {
+        switch (bits) {
+            case 8:
+                return PcmReader.ENCODING_PCM_8BIT;
+            case 16:
+                return PcmReader.ENCODING_PCM_16BIT;
+            case 24:
+                return PcmReader.ENCODING_PCM_24BIT_PACKED;
+            case 32:
+                return PcmReader.ENCODING_PCM_32BIT;
+            case -32:
+                return PcmReader.ENCODING_PCM_FLOAT;
+            default:
+                throw new IllegalArgumentException("bits: " + bits);
+        }
+    }
+
+    /**
+     * 写入 frames 帧的 WAV 文件，数据块紧跟 44 字节的标准文件头。
+     */
+    static File write(File file, int bits, int channels, int sampleRate, long frames) throws IOException {
+        int bytesPerSample = Math.abs(bits) / 8;
+        int frameSize = bytesPerSample * channels;
+        long dataLength = frames * frameSize;
+
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'});
+        header.putInt((int) Math.min(0xFFFFFFFFL, dataLength + 36));
+        header.put(new byte[]{'W', 'A', 'V', 'E', 'f', 'm', 't', ' '});
+        header.putInt(16);
+        header.putShort((short) (bits < 0 ? 3 : 1));
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * frameSize);
+        header.putShort((short) frameSize);
+        header.putShort((short) Math.abs(bits));
+        header.put(new byte[]{'d', 'a', 't', 'a'});
+        header.putInt((int) Math.min(0xFFFFFFFFL, dataLength));
+
+        ByteBuffer block = ByteBuffer.allocate(frameSize * 4096).order(ByteOrder.LITTLE_ENDIAN);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            out.write(header.array());
+            for (long frame = 0; frame < frames; frame++) {
+                for (int c = 0; c < channels; c++) {
+                    putSample(block, bits, signal(frame, c, sampleRate));
+                }
+                if (!block.hasRemaining()) {
+                    out.write(block.array(), 0, block.position());
+                    block.clear();
+                }
+            }
+            out.write(block.array(), 0, block.position());
+        }
+        return file;
+    }
+
+    private static void putSample(ByteBuffer block, int bits, double value) {
+        switch (bits) {
+            case 8:
+                block.put((byte) (Math.round(value * 127) + 128));
+                break;
+            case 16:
+                block.putShort((short) Math.round(value * 32767));
+                break;
+            case 24:
+                int sample = (int) Math.round(value * 8388607);
+                block.put((byte) sample).put((byte) (sample >> 8)).put((byte) (sample >> 16));
+                break;
+            case 32:
+                block.putInt((int) Math.round(value * 2147483647.0));
+                break;
+            case -32:
+                block.putFloat((float) value);
+                break;
+            default:
+                throw new IllegalArgumentException("bits: " + bits);
+        }
+    }
+}
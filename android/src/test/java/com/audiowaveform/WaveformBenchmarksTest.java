@@ -0,0 +1,36 @@
+package com.audiowaveform;
+
+import java.io.File;
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行 JMH 基准：./gradlew testDebugUnitTest -Pbenchmark[=正则]，正则为空时运行全部基准。
+ * -Pbenchmark.durations=60,3600 可只运行部分时长；结果写入 build/reports/jmh/results.json。
+ * 未设置 benchmark 时跳过，普通单元测试不受影响。
+ */
+public class WaveformBenchmarksTest {
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        String include = System.getProperty("benchmark");
+        Assume.assumeTrue(include != null);
+
+        File results = new File("build/reports/jmh/results.json");
+        results.getParentFile().mkdirs();
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(include.isEmpty() || "true".equals(include)
+                        ? WaveformBenchmarksTest.class.getPackage().getName() + "\\..*Benchmark" : include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.getPath());
+        String durations = System.getProperty("benchmark.durations");
+        if (durations != null && !durations.isEmpty()) {
+            options.param("durationSec", durations.split(","));
+        }
+        new Runner(options.build()).run();
+    }
+}
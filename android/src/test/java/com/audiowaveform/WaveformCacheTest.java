@@ -0,0 +1,241 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WaveformCacheTest {
+
+    // 头部 20 字节 + 5 个 float
+    private static final int VALUES = 5;
+    private static final long ENTRY_BYTES = 20 + VALUES * 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = folder.newFolder("cache");
+    }
+
+    @Test
+    public void keyForIgnoresNonLocalFiles() {
+        assertNull(WaveformCache.keyFor("https://example.com/a.mp3", 100, "amplitude"));
+        assertNull(WaveformCache.keyFor(new File(directory, "missing.wav").getPath(), 100, "amplitude"));
+        assertNull(WaveformCache.keyFor(directory.getPath(), 100, "amplitude"));
+    }
+
+    @Test
+    public void keyForChangesWithFileAndRequest() throws IOException {
+        File audio = folder.newFile("a.wav");
+        write(audio, 10);
+        audio.setLastModified(1_000_000);
+        String key = WaveformCache.keyFor(audio.getPath(), 100, "amplitude");
+        assertNotNull(key);
+        assertEquals(key, WaveformCache.keyFor("file://" + audio.getAbsolutePath(), 100, "amplitude"));
+        assertNotEquals(key, WaveformCache.keyFor(audio.getPath(), 200, "amplitude"));
+        assertNotEquals(key, WaveformCache.keyFor(audio.getPath(), 100, "rms"));
+
+        // 内容被替换后旧条目失效
+        audio.setLastModified(2_000_000);
+        String touched = WaveformCache.keyFor(audio.getPath(), 100, "amplitude");
+        assertNotEquals(key, touched);
+        write(audio, 20);
+        audio.setLastModified(2_000_000);
+        assertNotEquals(touched, WaveformCache.keyFor(audio.getPath(), 100, "amplitude"));
+    }
+
+    @Test
+    public void memoryHitReturnsSameEntry() {
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 4);
+        WaveformCache.Entry entry = entry(1);
+        cache.put("a", entry);
+        assertSame(entry, cache.get("a"));
+        assertEquals(1L, (long) cache.getStats().get("memoryHits"));
+        assertNull(cache.get("b"));
+        assertEquals(1L, (long) cache.getStats().get("misses"));
+    }
+
+    @Test
+    public void memoryKeepsMostRecentlyUsedEntries() {
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 2);
+        WaveformCache.Entry a = entry(1);
+        WaveformCache.Entry b = entry(2);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.get("a");
+        cache.put("c", entry(3));
+        assertSame(a, cache.get("a"));
+        // b 已不在内存中，从磁盘读回的是新实例
+        WaveformCache.Entry fromDisk = cache.get("b");
+        assertNotSame(b, fromDisk);
+        assertArrayEquals(b.values, fromDisk.values, 0f);
+        assertEquals(1L, (long) cache.getStats().get("diskHits"));
+    }
+
+    @Test
+    public void diskEntriesSurviveNewInstance() {
+        WaveformCache.Entry entry = entry(1);
+        new WaveformCache(directory, 1 << 20, 4).put("a", entry);
+
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 4);
+        WaveformCache.Entry read = cache.get("a");
+        assertNotNull(read);
+        assertEquals(entry.durationUs, read.durationUs);
+        assertArrayEquals(entry.values, read.values, 0f);
+        assertEquals(1L, (long) cache.getStats().get("diskHits"));
+        assertEquals(ENTRY_BYTES, (long) cache.getStats().get("diskBytes"));
+    }
+
+    // 读取会刷新 LRU 顺序，超出容量时淘汰最久未读取的文件
+    @Test
+    public void evictsLeastRecentlyUsedFromDisk() {
+        WaveformCache cache = new WaveformCache(directory, ENTRY_BYTES * 2, 0);
+        cache.put("a", entry(1));
+        cache.put("b", entry(2));
+        assertNotNull(cache.get("a"));
+        cache.put("c", entry(3));
+
+        assertTrue(cacheFile("a").isFile());
+        assertFalse(cacheFile("b").isFile());
+        assertTrue(cacheFile("c").isFile());
+        assertNull(cache.get("b"));
+        assertEquals(1L, (long) cache.getStats().get("evictions"));
+        assertEquals(ENTRY_BYTES * 2, (long) cache.getStats().get("diskBytes"));
+    }
+
+    @Test
+    public void replacingEntryKeepsSizeAccounting() {
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 0);
+        cache.put("a", entry(1));
+        cache.put("a", entry(2));
+        assertEquals(1L, (long) cache.getStats().get("diskEntries"));
+        assertEquals(ENTRY_BYTES, (long) cache.getStats().get("diskBytes"));
+        assertEquals(2f, cache.get("a").values[0], 0f);
+    }
+
+    // 新实例按文件修改时间恢复 LRU 顺序，容量变小时先删除最旧的文件
+    @Test
+    public void reindexTrimsOldestFiles() {
+        WaveformCache writer = new WaveformCache(directory, 1 << 20, 0);
+        writer.put("a", entry(1));
+        writer.put("b", entry(2));
+        writer.put("c", entry(3));
+        cacheFile("a").setLastModified(3_000_000);
+        cacheFile("b").setLastModified(1_000_000);
+        cacheFile("c").setLastModified(2_000_000);
+
+        WaveformCache cache = new WaveformCache(directory, ENTRY_BYTES * 2, 0);
+        assertNotNull(cache.get("a"));
+        assertFalse(cacheFile("b").isFile());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1L, (long) cache.getStats().get("evictions"));
+    }
+
+    @Test
+    public void reindexRemovesUnknownFiles() throws IOException {
+        File leftover = new File(directory, "a.tmp");
+        write(leftover, 8);
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 0);
+        assertNull(cache.get("a"));
+        assertFalse(leftover.exists());
+    }
+
+    @Test
+    public void corruptFilesAreMissesAndRemoved() throws IOException {
+        write(cacheFile("short"), 8);
+        write(cacheFile("garbage"), (int) ENTRY_BYTES);
+        new WaveformCache(directory, 1 << 20, 0).put("truncated", entry(1));
+        try (FileOutputStream out = new FileOutputStream(cacheFile("truncated"), true)) {
+            out.write(0);
+        }
+
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 0);
+        for (String key : new String[]{"short", "garbage", "truncated"}) {
+            assertNull(key, cache.get(key));
+            assertFalse(key, cacheFile(key).exists());
+        }
+        assertEquals(0L, (long) cache.getStats().get("diskEntries"));
+        assertEquals(0L, (long) cache.getStats().get("diskBytes"));
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        WaveformCache cache = new WaveformCache(directory, 1 << 20, 4);
+        cache.put("a", entry(1));
+        cache.put("b", entry(2));
+        cache.clear();
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(0, directory.list().length);
+        assertEquals(0L, (long) cache.getStats().get("diskBytes"));
+    }
+
+    // 写文件在锁外进行，并发读写结束后索引、字节计数与目录中的文件一致，不留临时文件
+    @Test
+    public void concurrentPutsKeepIndexConsistent() throws InterruptedException {
+        WaveformCache cache = new WaveformCache(directory, ENTRY_BYTES * 6, 2);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    String key = "k" + (i * 7 + seed) % 10;
+                    cache.put(key, entry(i));
+                    WaveformCache.Entry read = cache.get(key);
+                    if (read != null) {
+                        assertEquals(VALUES, read.values.length);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long bytes = 0;
+        for (File file : directory.listFiles()) {
+            assertTrue(file.getName(), file.getName().endsWith(".wf"));
+            bytes += file.length();
+        }
+        assertEquals(bytes, (long) cache.getStats().get("diskBytes"));
+        assertEquals(directory.list().length, (long) cache.getStats().get("diskEntries"));
+        assertTrue(bytes <= ENTRY_BYTES * 6);
+    }
+
+    private File cacheFile(String key) {
+        return new File(directory, key + ".wf");
+    }
+
+    private static WaveformCache.Entry entry(float first) {
+        float[] values = new float[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = first + i * 0.5f;
+        }
+        return new WaveformCache.Entry(1_000_000L * (long) first, values);
+    }
+
+    private static void write(File file, int bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[bytes]);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class WaveformMetricsTest {
+
+    private static final int SAMPLES = 4;
+    private static final int CHANNELS = 2;
+
+    @Test
+    public void matchesReducerForEveryMetric() {
+        WaveformReducer reducer = stereoReducer();
+        WaveformMetrics metrics = WaveformMetrics.fromReducer(reducer);
+        assertEquals(SAMPLES, metrics.getSamples());
+        assertEquals(CHANNELS, metrics.getChannelCount());
+        for (int channel = -1; channel < CHANNELS; channel++) {
+            WaveformReducer source = channel < 0 ? reducer : reducer.channel(channel);
+            for (String metric : WaveformMetrics.NAMES) {
+                assertArrayEquals(channel + " " + metric, expected(source, metric), metrics.get(channel, metric), 0f);
+            }
+        }
+        assertArrayEquals(metrics.get(-1, "rms"), metrics.get("rms"), 0f);
+    }
+
+    // 展开顺序为 [声道（混合在前）][指标][区间]
+    @Test
+    public void packedLayoutIsChannelMetricBucket() {
+        WaveformReducer reducer = stereoReducer();
+        float[] packed = WaveformMetrics.fromReducer(reducer).toPacked();
+        int metrics = WaveformMetrics.NAMES.length;
+        assertEquals((CHANNELS + 1) * metrics * SAMPLES, packed.length);
+        for (int channel = -1; channel < CHANNELS; channel++) {
+            WaveformReducer source = channel < 0 ? reducer : reducer.channel(channel);
+            for (int m = 0; m < metrics; m++) {
+                float[] values = expected(source, WaveformMetrics.NAMES[m]);
+                int offset = ((channel + 1) * metrics + m) * SAMPLES;
+                for (int i = 0; i < SAMPLES; i++) {
+                    assertEquals(channel + " " + m + " " + i, values[i], packed[offset + i], 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packedRoundTrip() {
+        float[] packed = WaveformMetrics.fromReducer(stereoReducer()).toPacked();
+        WaveformMetrics restored = WaveformMetrics.fromPacked(SAMPLES, packed);
+        assertNotNull(restored);
+        assertEquals(CHANNELS, restored.getChannelCount());
+        assertSame(packed, restored.toPacked());
+        assertArrayEquals(packed, WaveformMetrics.fromReducer(stereoReducer()).toPacked(), 0f);
+    }
+
+    @Test
+    public void mixOnlyReducerHasNoChannels() {
+        WaveformReducer reducer = new WaveformReducer(SAMPLES, 1);
+        reducer.addFramesToBucket(0, new float[]{0.5f, -0.25f}, 0, 2, 1);
+        WaveformMetrics metrics = WaveformMetrics.fromReducer(reducer);
+        assertEquals(0, metrics.getChannelCount());
+        assertEquals(WaveformMetrics.NAMES.length * SAMPLES, metrics.toPacked().length);
+        assertEquals(-0.25f, metrics.get("min")[0], 0f);
+        assertEquals(0.5f, metrics.get("max")[0], 0f);
+    }
+
+    @Test
+    public void fromPackedRejectsMismatchedLength() {
+        int stride = WaveformMetrics.NAMES.length * SAMPLES;
+        assertNull(WaveformMetrics.fromPacked(SAMPLES, new float[0]));
+        assertNull(WaveformMetrics.fromPacked(SAMPLES, new float[stride + 1]));
+        assertNull(WaveformMetrics.fromPacked(0, new float[stride]));
+        assertEquals(2, WaveformMetrics.fromPacked(SAMPLES, new float[stride * 3]).getChannelCount());
+    }
+
+    // 未知的指标名按 amplitude 处理
+    @Test
+    public void unknownMetricFallsBackToAmplitude() {
+        WaveformMetrics metrics = WaveformMetrics.fromReducer(stereoReducer());
+        assertEquals(-1, WaveformMetrics.indexOf("loudness"));
+        assertArrayEquals(metrics.get("amplitude"), metrics.get("loudness"), 0f);
+        assertArrayEquals(metrics.get(1, "amplitude"), metrics.get(1, null), 0f);
+    }
+
+    @Test
+    public void onlyMinAndMaxAreSigned() {
+        for (String metric : WaveformMetrics.NAMES) {
+            assertEquals(metric, metric.equals("min") || metric.equals("max"), WaveformMetrics.isSigned(metric));
+        }
+        assertFalse(WaveformMetrics.isSigned("unknown"));
+        assertTrue(WaveformMetrics.indexOf("max") >= 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsChannelBelowMix() {
+        WaveformMetrics.fromReducer(stereoReducer()).get(-2, "rms");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsUntrackedChannel() {
+        WaveformMetrics.fromReducer(stereoReducer()).get(CHANNELS, "rms");
+    }
+
+    // 两个声道取值不同，区间 i 的样本幅度随 i 增大
+    private static WaveformReducer stereoReducer() {
+        WaveformReducer reducer = new WaveformReducer(SAMPLES, 1, CHANNELS);
+        for (int b = 0; b < SAMPLES; b++) {
+            float level = (b + 1) / (float) SAMPLES;
+            float[] pcm = {level, -level * 0.5f, -level, level * 0.25f};
+            reducer.addFramesToBucket(b, pcm, 0, 2, CHANNELS);
+        }
+        return reducer;
+    }
+
+    private static float[] expected(WaveformReducer reducer, String metric) {
+        float[] values = new float[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            if (metric.equals("min")) {
+                values[i] = reducer.minAt(i);
+            } else if (metric.equals("max")) {
+                values[i] = reducer.maxAt(i);
+            } else {
+                values[i] = (float) reducer.valueAt(i, metric);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,171 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class WaveformPyramidTest {
+
+    private static final int BASE_BINS = 1024;
+    private static final long DURATION_US = BASE_BINS * WaveformPyramid.BASE_BIN_US;
+
+    @Test
+    public void buildsLevelsUntilOneBinIsLeft() {
+        assertEquals(11, pyramid(BASE_BINS).getLevelCount());
+        // 奇数个区间时最后一个区间单独进入上一层
+        assertEquals(4, pyramid(5).getLevelCount());
+        assertEquals(1, pyramid(1).getLevelCount());
+    }
+
+    @Test
+    public void baseBinsForClampsToLimits() {
+        assertEquals(1, WaveformPyramid.baseBinsFor(0));
+        assertEquals(1, WaveformPyramid.baseBinsFor(WaveformPyramid.BASE_BIN_US));
+        assertEquals(2, WaveformPyramid.baseBinsFor(WaveformPyramid.BASE_BIN_US + 1));
+        assertEquals(WaveformPyramid.MAX_BASE_BINS, WaveformPyramid.baseBinsFor(Long.MAX_VALUE / 2));
+    }
+
+    // 选择每个点至少覆盖 4 个区间的最粗层级
+    @Test
+    public void choosesCoarsestLevelWithFourBinsPerPoint() {
+        WaveformPyramid pyramid = pyramid(BASE_BINS);
+        assertEquals(0, pyramid.query(0, DURATION_US, 256).level);
+        assertEquals(0, pyramid.query(0, DURATION_US, 129).level);
+        assertEquals(1, pyramid.query(0, DURATION_US, 128).level);
+        assertEquals(8, pyramid.query(0, DURATION_US, 1).level);
+        assertEquals(0, pyramid.query(0, DURATION_US, 10_000).level);
+        // 一半的范围同样的点数，层级低一层
+        assertEquals(0, pyramid.query(0, DURATION_US / 2, 128).level);
+
+        WaveformPyramid.Range range = pyramid.query(0, DURATION_US, 16);
+        assertEquals(4, range.level);
+        assertEquals(WaveformPyramid.BASE_BIN_US << 4, range.binDurationUs);
+    }
+
+    @Test
+    public void coarseLevelsMatchBaseBins() {
+        float[] packed = randomPacked(BASE_BINS, 1);
+        WaveformPyramid pyramid = WaveformPyramid.fromPacked(DURATION_US, packed);
+        for (int points : new int[]{1, 16, 64, 256}) {
+            WaveformPyramid.Range range = pyramid.query(0, DURATION_US, points);
+            int binsPerPoint = BASE_BINS / points;
+            for (int i = 0; i < points; i++) {
+                String label = points + " points, point " + i;
+                float lo = Float.POSITIVE_INFINITY;
+                float hi = Float.NEGATIVE_INFINITY;
+                double squares = 0;
+                for (int b = i * binsPerPoint; b < (i + 1) * binsPerPoint; b++) {
+                    lo = Math.min(lo, packed[b]);
+                    hi = Math.max(hi, packed[BASE_BINS + b]);
+                    squares += packed[BASE_BINS * 2 + b];
+                }
+                assertEquals(label, lo, range.min[i], 0f);
+                assertEquals(label, hi, range.max[i], 0f);
+                assertEquals(label, Math.sqrt(squares / binsPerPoint), range.rms[i], 1e-5);
+            }
+        }
+    }
+
+    @Test
+    public void clampsRangeToDuration() {
+        WaveformPyramid pyramid = pyramid(BASE_BINS);
+        WaveformPyramid.Range range = pyramid.query(-1_000_000, DURATION_US * 2, 16);
+        assertEquals(0, range.startUs);
+        assertEquals(DURATION_US, range.endUs);
+        WaveformPyramid.Range full = pyramid.query(0, DURATION_US, 16);
+        assertArrayEquals(full.min, range.min, 0f);
+        assertArrayEquals(full.max, range.max, 0f);
+
+        // 结束早于开始时视为空范围
+        range = pyramid.query(DURATION_US / 2, 0, 4);
+        assertEquals(DURATION_US / 2, range.startUs);
+        assertEquals(DURATION_US / 2, range.endUs);
+    }
+
+    // 开始时间超出时长时落在最后一个区间上，不越界
+    @Test
+    public void startBeyondDurationReadsLastBin() {
+        float[] packed = randomPacked(BASE_BINS, 2);
+        WaveformPyramid pyramid = WaveformPyramid.fromPacked(DURATION_US, packed);
+        WaveformPyramid.Range range = pyramid.query(DURATION_US + 5, DURATION_US + 10, 4);
+        assertEquals(DURATION_US, range.startUs);
+        assertEquals(DURATION_US, range.endUs);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(packed[BASE_BINS - 1], range.min[i], 0f);
+            assertEquals(packed[BASE_BINS * 2 - 1], range.max[i], 0f);
+        }
+    }
+
+    // 范围比一个区间还窄时，所有点都落在同一个区间上
+    @Test
+    public void rangeInsideOneBinRepeatsThatBin() {
+        float[] packed = randomPacked(BASE_BINS, 3);
+        WaveformPyramid pyramid = WaveformPyramid.fromPacked(DURATION_US, packed);
+        long start = 10 * WaveformPyramid.BASE_BIN_US + 1_000;
+        WaveformPyramid.Range range = pyramid.query(start, start + 2_000, 8);
+        assertEquals(0, range.level);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(packed[10], range.min[i], 0f);
+            assertEquals(packed[BASE_BINS + 10], range.max[i], 0f);
+            assertEquals(Math.sqrt(packed[BASE_BINS * 2 + 10]), range.rms[i], 1e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositivePoints() {
+        pyramid(BASE_BINS).query(0, DURATION_US, 0);
+    }
+
+    @Test
+    public void packedRoundTrip() {
+        float[] packed = randomPacked(37, 4);
+        WaveformPyramid pyramid = WaveformPyramid.fromPacked(1_000, packed);
+        assertNotNull(pyramid);
+        assertEquals(37, pyramid.getBaseBins());
+        assertEquals(1_000, pyramid.getDurationUs());
+        assertArrayEquals(packed, pyramid.toPacked(), 0f);
+    }
+
+    @Test
+    public void fromPackedRejectsMalformedInput() {
+        assertNull(WaveformPyramid.fromPacked(1_000, new float[0]));
+        assertNull(WaveformPyramid.fromPacked(1_000, new float[7]));
+        assertNull(WaveformPyramid.fromPacked(0, new float[6]));
+    }
+
+    @Test
+    public void fromReducerKeepsBaseBins() {
+        float[] pcm = {-0.5f, 0.25f, 1f, -1f, 0f, 0.5f};
+        WaveformReducer reducer = new WaveformReducer(3, 1);
+        for (int b = 0; b < 3; b++) {
+            reducer.addFramesToBucket(b, pcm, b * 2, b * 2 + 2, 1);
+        }
+        WaveformPyramid pyramid = WaveformPyramid.fromReducer(reducer);
+        float[] packed = pyramid.toPacked();
+        assertArrayEquals(new float[]{-0.5f, -1f, 0f, 0.25f, 1f, 0.5f}, Arrays.copyOf(packed, 6), 0f);
+        assertEquals((0.25 + 0.0625) / 2, packed[6], 1e-6);
+    }
+
+    private static WaveformPyramid pyramid(int bins) {
+        return WaveformPyramid.fromPacked(bins * WaveformPyramid.BASE_BIN_US, randomPacked(bins, 0));
+    }
+
+    // 每个区间的 min <= max，均方在 [0, 1) 内
+    private static float[] randomPacked(int bins, long seed) {
+        Random random = new Random(seed);
+        float[] packed = new float[bins * 3];
+        for (int i = 0; i < bins; i++) {
+            float a = random.nextFloat() * 2 - 1;
+            float b = random.nextFloat() * 2 - 1;
+            packed[i] = Math.min(a, b);
+            packed[bins + i] = Math.max(a, b);
+            packed[bins * 2 + i] = random.nextFloat();
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,72 @@
+package com.audiowaveform;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 归约 durationSec 秒的 44.1kHz 样本到 200 个区间；样本取自一秒的生成片段循环使用，只测归约本身。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class WaveformReducerBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int BUCKETS = 200;
+
+    @Param({"60", "3600", "10800"})
+    public int durationSec;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    private float[] pcm;
+    private long frames;
+    private long durationUs;
+
+    @Setup
+    public void setUp() {
+        pcm = new float[SAMPLE_RATE * channels];
+        for (int f = 0; f < SAMPLE_RATE; f++) {
+            for (int c = 0; c < channels; c++) {
+                pcm[f * channels + c] = (float) WavFixtures.signal(f, c, SAMPLE_RATE);
+            }
+        }
+        frames = (long) durationSec * SAMPLE_RATE;
+        durationUs = durationSec * 1_000_000L;
+    }
+
+    @Benchmark
+    public WaveformReducer reduce() {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, durationUs);
+        for (long frame = 0; frame < frames; frame += SAMPLE_RATE) {
+            int count = (int) Math.min(SAMPLE_RATE, frames - frame);
+            reducer.addFramesAt(frame, pcm, 0, count, channels, SAMPLE_RATE);
+        }
+        return reducer;
+    }
+
+    // 同时按声道统计
+    @Benchmark
+    public WaveformReducer reducePerChannel() {
+        WaveformReducer reducer = new WaveformReducer(BUCKETS, durationUs, channels);
+        for (long frame = 0; frame < frames; frame += SAMPLE_RATE) {
+            int count = (int) Math.min(SAMPLE_RATE, frames - frame);
+            reducer.addFramesAt(frame, pcm, 0, count, channels, SAMPLE_RATE);
+        }
+        return reducer;
+    }
+}
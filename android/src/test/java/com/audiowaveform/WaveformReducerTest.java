@@ -0,0 +1,269 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class WaveformReducerTest {
+
+    private static final int SAMPLE_RATE = 1000;
+    private static final String[] TYPES = {"amplitude", "rms", "peak", "logarithmic"};
+
+    @Test
+    public void bucketForTimeBoundaries() {
+        WaveformReducer reducer = new WaveformReducer(4, 1_000_000);
+        assertEquals(0, reducer.bucketForTime(-5));
+        assertEquals(0, reducer.bucketForTime(0));
+        assertEquals(0, reducer.bucketForTime(249_999));
+        assertEquals(1, reducer.bucketForTime(250_000));
+        assertEquals(3, reducer.bucketForTime(999_999));
+        // 超出时长的时间戳归入最后一个区间
+        assertEquals(3, reducer.bucketForTime(1_000_000));
+        assertEquals(3, reducer.bucketForTime(5_000_000));
+
+        assertEquals(250_000, reducer.bucketEndUs(0));
+        assertEquals(1_000_000, reducer.bucketEndUs(3));
+    }
+
+    // 区间时长不是整帧数时，每一帧仍按自己的时间戳落入区间
+    @Test
+    public void addFramesSplitsAtBucketEdges() {
+        int frames = 1000;
+        float[] pcm = ramp(frames, 1);
+        for (int buckets : new int[]{1, 3, 7, 200, 999}) {
+            WaveformReducer reducer = new WaveformReducer(buckets, frames * 1_000_000L / SAMPLE_RATE);
+            reducer.addFrames(pcm, 0, frames, 1, 0, SAMPLE_RATE);
+            assertSameValues("buckets " + buckets, referenceByTime(pcm, 1, 0, buckets, frames), reducer);
+        }
+    }
+
+    @Test
+    public void addFramesHonoursStartTime() {
+        int frames = 500;
+        float[] pcm = ramp(frames, 2);
+        long startUs = 123_456;
+        WaveformReducer reducer = new WaveformReducer(9, 1_000_000);
+        reducer.addFrames(pcm, 0, frames, 2, startUs, SAMPLE_RATE);
+
+        WaveformReducer expected = new WaveformReducer(9, 1_000_000);
+        addFrameByFrame(expected, pcm, 2, startUs, frames);
+        assertSameValues("start " + startUs, expected, reducer);
+    }
+
+    // 按帧号划分时，任意切块、从任意帧开始累加的结果都与逐帧计算一致
+    @Test
+    public void addFramesAtMatchesFrameIndexAnywhereInTheFile() {
+        int frames = 1000;
+        int channels = 2;
+        float[] pcm = ramp(frames, channels);
+        long durationUs = frames * 1_000_000L / SAMPLE_RATE;
+        for (int buckets : new int[]{3, 7, 200}) {
+            WaveformReducer expected = referenceByTime(pcm, channels, 0, buckets, frames);
+            for (int chunk : new int[]{1, 13, 333, 334, 1000}) {
+                WaveformReducer reducer = new WaveformReducer(buckets, durationUs);
+                for (int from = 0; from < frames; from += chunk) {
+                    int count = Math.min(chunk, frames - from);
+                    float[] block = new float[count * channels];
+                    System.arraycopy(pcm, from * channels, block, 0, block.length);
+                    reducer.addFramesAt(from, block, 0, count, channels, SAMPLE_RATE);
+                }
+                assertSameValues("buckets " + buckets + ", chunk " + chunk, expected, reducer);
+            }
+        }
+    }
+
+    // 稀疏采样的窗口整体计入指定区间，与按时间戳落入该区间的结果一致
+    @Test
+    public void addFramesToBucketMatchesTimedFrames() {
+        float[] pcm = ramp(100, 2);
+        WaveformReducer reducer = new WaveformReducer(4, 1_000_000);
+        reducer.addFramesToBucket(1, pcm, 10, 60, 2);
+
+        // 第 10 帧位于 250ms，第 59 帧位于 299ms，都在区间 1 内
+        WaveformReducer expected = new WaveformReducer(4, 1_000_000);
+        expected.addFrames(pcm, 10, 60, 2, 240_000, SAMPLE_RATE);
+        assertSameValues("bucket 1", expected, reducer);
+    }
+
+    // 多声道按绝对值平均混为单声道，带符号的 min / max 取各声道的平均
+    @Test
+    public void mixesChannelsByAbsoluteAverage() {
+        float[] pcm = {0.5f, -0.25f, 0.5f, -0.25f};
+        WaveformReducer reducer = new WaveformReducer(1, 1_000_000);
+        reducer.addFrames(pcm, 0, 2, 2, 0, SAMPLE_RATE);
+        assertEquals(0.375, reducer.valueAt(0, "amplitude"), 1e-6);
+        assertEquals(0.375, reducer.valueAt(0, "peak"), 1e-6);
+        assertEquals(0.375, reducer.valueAt(0, "rms"), 1e-6);
+        assertEquals(0.125f, reducer.minAt(0), 1e-6f);
+        assertEquals(0.125f, reducer.maxAt(0), 1e-6f);
+    }
+
+    @Test
+    public void tracksChannelsSeparately() {
+        int frames = 300;
+        float[] pcm = new float[frames * 2];
+        for (int f = 0; f < frames; f++) {
+            pcm[f * 2] = 0.5f;
+            pcm[f * 2 + 1] = -0.25f;
+        }
+        WaveformReducer reducer = new WaveformReducer(3, frames * 1_000_000L / SAMPLE_RATE, 2);
+        reducer.addFrames(pcm, 0, frames, 2, 0, SAMPLE_RATE);
+
+        assertEquals(2, reducer.getTrackedChannels());
+        for (int b = 0; b < 3; b++) {
+            assertEquals(0.375, reducer.valueAt(b, "amplitude"), 1e-6);
+            assertEquals(0.125f, reducer.minAt(b), 1e-6f);
+            assertEquals(0.5, reducer.channel(0).valueAt(b, "peak"), 1e-6);
+            assertEquals(0.25, reducer.channel(1).valueAt(b, "rms"), 1e-6);
+            assertEquals(-0.25f, reducer.channel(1).maxAt(b), 1e-6f);
+        }
+    }
+
+    @Test
+    public void emptyBucketsAreZero() {
+        WaveformReducer reducer = new WaveformReducer(4, 1_000_000);
+        assertTrue(reducer.isEmpty());
+        float[] pcm = {0.5f};
+        reducer.addFrames(pcm, 0, 1, 1, 600_000, SAMPLE_RATE);
+        assertFalse(reducer.isEmpty());
+        for (String type : TYPES) {
+            assertEquals(0, reducer.valueAt(0, type), 0);
+        }
+        assertEquals(0f, reducer.minAt(0), 0f);
+        assertEquals(0f, reducer.maxAt(0), 0f);
+        assertEquals(0.5, reducer.valueAt(2, "peak"), 1e-6);
+    }
+
+    @Test
+    public void appliesSilenceThreshold() {
+        WaveformReducer reducer = new WaveformReducer(1, 1_000_000);
+        float[] pcm = {WaveformReducer.SILENCE_THRESHOLD / 2};
+        reducer.addFrames(pcm, 0, 1, 1, 0, SAMPLE_RATE);
+        assertEquals(0, reducer.valueAt(0, "amplitude"), 0);
+        assertEquals(0, reducer.valueAt(0, "peak"), 0);
+    }
+
+    @Test
+    public void clearResetsEveryAccumulator() {
+        int frames = 400;
+        float[] pcm = ramp(frames, 2);
+        long durationUs = frames * 1_000_000L / SAMPLE_RATE;
+        WaveformReducer reducer = new WaveformReducer(5, durationUs, 2);
+        reducer.addFrames(pcm, 0, frames, 2, 0, SAMPLE_RATE);
+        reducer.clear();
+
+        assertTrue(reducer.isEmpty());
+        for (int b = 0; b < 5; b++) {
+            assertEquals(0, reducer.valueAt(b, "peak"), 0);
+            assertEquals(0f, reducer.minAt(b), 0f);
+            assertEquals(0f, reducer.channel(1).maxAt(b), 0f);
+        }
+
+        // 清空后重新累加与新建的归约器一致，不残留之前的极值
+        float[] quiet = new float[frames * 2];
+        Arrays.fill(quiet, 0.01f);
+        reducer.addFrames(quiet, 0, frames, 2, 0, SAMPLE_RATE);
+        WaveformReducer fresh = new WaveformReducer(5, durationUs, 2);
+        fresh.addFrames(quiet, 0, frames, 2, 0, SAMPLE_RATE);
+        assertSameValues("after clear", fresh, reducer);
+        assertSameValues("after clear, channel 0", fresh.channel(0), reducer.channel(0));
+    }
+
+    // 分段边界落在区间中间时，各段的部分结果合并后与整段串行累加一致
+    @Test
+    public void mergeAcrossSegmentEdges() {
+        int frames = 1000;
+        float[] pcm = ramp(frames, 2);
+        long durationUs = frames * 1_000_000L / SAMPLE_RATE;
+        WaveformReducer serial = new WaveformReducer(7, durationUs, 2);
+        serial.addFrames(pcm, 0, frames, 2, 0, SAMPLE_RATE);
+
+        for (int[] edges : new int[][]{{500}, {1, 999}, {142, 143, 600}, {0, 1000}}) {
+            WaveformReducer merged = new WaveformReducer(7, durationUs, 2);
+            int from = 0;
+            for (int i = 0; i <= edges.length; i++) {
+                int to = i < edges.length ? edges[i] : frames;
+                WaveformReducer partial = merged.emptyCopy();
+                partial.addFrames(pcm, from, to, 2, 0, SAMPLE_RATE);
+                merged.merge(partial);
+                from = to;
+            }
+            String label = "edges " + Arrays.toString(edges);
+            assertSameValues(label, serial, merged);
+            for (int c = 0; c < 2; c++) {
+                assertSameValues(label + ", channel " + c, serial.channel(c), merged.channel(c));
+            }
+        }
+    }
+
+    @Test
+    public void mergeKeepsEmptyBucketsEmpty() {
+        WaveformReducer reducer = new WaveformReducer(4, 1_000_000);
+        reducer.merge(reducer.emptyCopy());
+        assertTrue(reducer.isEmpty());
+        assertEquals(0f, reducer.minAt(1), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsDifferentBuckets() {
+        new WaveformReducer(4, 1_000_000).merge(new WaveformReducer(5, 1_000_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsDifferentDuration() {
+        new WaveformReducer(4, 1_000_000).merge(new WaveformReducer(4, 2_000_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeRejectsDifferentChannels() {
+        new WaveformReducer(4, 1_000_000, 2).merge(new WaveformReducer(4, 1_000_000, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveBuckets() {
+        new WaveformReducer(0, 1_000_000);
+    }
+
+    // 逐帧递增的带符号样本，区间边界上错位的帧会改变区间的值
+    static float[] ramp(int frames, int channels) {
+        float[] pcm = new float[frames * channels];
+        for (int f = 0; f < frames; f++) {
+            for (int c = 0; c < channels; c++) {
+                pcm[f * channels + c] = (f - frames / 2f) / frames * (c == 0 ? 1 : -0.5f);
+            }
+        }
+        return pcm;
+    }
+
+    private static WaveformReducer referenceByTime(float[] pcm, int channels, long startUs, int buckets,
+                                                   int frames) {
+        WaveformReducer expected = new WaveformReducer(buckets, frames * 1_000_000L / SAMPLE_RATE);
+        addFrameByFrame(expected, pcm, channels, startUs, frames);
+        return expected;
+    }
+
+    // 每次只累加一帧，时间戳按该帧在整段中的位置计算
+    private static void addFrameByFrame(WaveformReducer reducer, float[] pcm, int channels, long startUs,
+                                        int frames) {
+        float[] frame = new float[channels];
+        for (int f = 0; f < frames; f++) {
+            System.arraycopy(pcm, f * channels, frame, 0, channels);
+            reducer.addFrames(frame, 0, 1, channels, startUs + f * 1_000_000L / SAMPLE_RATE, SAMPLE_RATE);
+        }
+    }
+
+    static void assertSameValues(String label, WaveformReducer expected, WaveformReducer actual) {
+        assertEquals(label, expected.getBuckets(), actual.getBuckets());
+        for (int b = 0; b < expected.getBuckets(); b++) {
+            for (String type : TYPES) {
+                assertEquals(label + ", bucket " + b + ", " + type,
+                        expected.valueAt(b, type), actual.valueAt(b, type), 1e-6);
+            }
+            assertEquals(label + ", bucket " + b + ", min", expected.minAt(b), actual.minAt(b), 0f);
+            assertEquals(label + ", bucket " + b + ", max", expected.maxAt(b), actual.maxAt(b), 0f);
+        }
+    }
+}
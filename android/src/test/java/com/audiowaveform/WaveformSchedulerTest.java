@@ -0,0 +1,267 @@
+package com.audiowaveform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WaveformSchedulerTest {
+
+    private WaveformScheduler<String> scheduler;
+    // 占住唯一的工作线程，之后提交的作业都在队列中等待
+    private CountDownLatch gate;
+    private Recorder gateListener;
+
+    @Before
+    public void blockWorker() throws InterruptedException {
+        scheduler = new WaveformScheduler<>(1);
+        gate = new CountDownLatch(1);
+        gateListener = new Recorder();
+        CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit("gate", "gate", 0, cancelled -> {
+            started.countDown();
+            gate.await();
+            return "gate";
+        }, gateListener);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void shutdown() {
+        gate.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void coalescesRequestsWithSameKey() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        assertTrue(scheduler.submit("1", "k", 0, counting(runs, "result"), first));
+        assertTrue(scheduler.submit("2", "k", 0, counting(runs, "other"), second));
+        assertEquals(Arrays.asList("1", "2"), scheduler.jobIds("k"));
+        assertEquals(2, scheduler.pendingCount());
+
+        gate.countDown();
+        first.await();
+        second.await();
+        assertEquals(1, runs.get());
+        assertEquals("result", first.result);
+        assertEquals("result", second.result);
+        assertEquals(Collections.emptyList(), scheduler.jobIds("k"));
+    }
+
+    @Test
+    public void rejectsDuplicateJobId() throws InterruptedException {
+        Recorder first = new Recorder();
+        Recorder duplicate = new Recorder();
+        assertTrue(scheduler.submit("1", "a", 0, cancelled -> "a", first));
+        assertFalse(scheduler.submit("1", "b", 0, cancelled -> "b", duplicate));
+        assertEquals(Collections.singletonList("1"), scheduler.jobIds("a"));
+        assertEquals(Collections.emptyList(), scheduler.jobIds("b"));
+
+        gate.countDown();
+        first.await();
+        assertEquals("a", first.result);
+        assertEquals(0, duplicate.events());
+    }
+
+    // 优先级高的先执行，同优先级按提交顺序
+    @Test
+    public void runsHigherPriorityFirst() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Recorder last = new Recorder();
+        scheduler.submit("a", "a", 0, recording(order, "a"), new Recorder());
+        scheduler.submit("b", "b", 1, recording(order, "b"), new Recorder());
+        scheduler.submit("c", "c", 0, recording(order, "c"), last);
+        scheduler.submit("d", "d", 1, recording(order, "d"), new Recorder());
+
+        gate.countDown();
+        last.await();
+        assertEquals(Arrays.asList("b", "d", "a", "c"), order);
+    }
+
+    // 合并进来的请求优先级更高时，排队中的作业随之提前
+    @Test
+    public void coalescedRequestBumpsPriority() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Recorder last = new Recorder();
+        scheduler.submit("a", "a", 0, recording(order, "a"), last);
+        scheduler.submit("b", "b", 1, recording(order, "b"), new Recorder());
+        scheduler.submit("c", "c", 0, recording(order, "c"), new Recorder());
+        Recorder bumped = new Recorder();
+        scheduler.submit("c2", "c", 2, recording(order, "c2"), bumped);
+
+        gate.countDown();
+        last.await();
+        bumped.await();
+        assertEquals(Arrays.asList("c", "b", "a"), order);
+        assertEquals("c", bumped.result);
+    }
+
+    @Test
+    public void cancellingOneRequestKeepsSharedJob() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        scheduler.submit("1", "k", 0, counting(runs, "result"), first);
+        scheduler.submit("2", "k", 0, counting(runs, "result"), second);
+
+        assertTrue(scheduler.cancel("1"));
+        assertEquals(1, first.cancelled.get());
+        assertEquals(Collections.singletonList("2"), scheduler.jobIds("k"));
+
+        gate.countDown();
+        second.await();
+        assertEquals(1, runs.get());
+        assertEquals("result", second.result);
+        assertEquals(1, first.events());
+    }
+
+    @Test
+    public void cancellingLastRequestAbortsQueuedJob() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        Recorder listener = new Recorder();
+        scheduler.submit("1", "k", 0, counting(runs, "old"), listener);
+        assertTrue(scheduler.cancel("1"));
+        assertFalse(scheduler.cancel("1"));
+        assertEquals(1, listener.cancelled.get());
+        assertEquals(1, scheduler.pendingCount());
+
+        // 取消后相同 key 的新请求不会合并到已取消的作业上
+        Recorder next = new Recorder();
+        scheduler.submit("1", "k", 0, counting(runs, "new"), next);
+        gate.countDown();
+        next.await();
+        assertEquals("new", next.result);
+        assertEquals(1, runs.get());
+        assertEquals(1, listener.events());
+    }
+
+    @Test
+    public void cancellingLastRequestStopsRunningJob() throws InterruptedException {
+        gate.countDown();
+        gateListener.await();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean sawCancel = new AtomicBoolean();
+        CountDownLatch stopped = new CountDownLatch(1);
+        Recorder listener = new Recorder();
+        scheduler.submit("1", "k", 0, cancelled -> {
+            started.countDown();
+            while (!cancelled.get()) {
+                Thread.sleep(1);
+            }
+            sawCancel.set(true);
+            stopped.countDown();
+            return "late";
+        }, listener);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        scheduler.cancel("1");
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertTrue(sawCancel.get());
+        assertEquals(1, listener.cancelled.get());
+        assertNull(listener.result);
+    }
+
+    @Test
+    public void reportsTaskErrors() throws InterruptedException {
+        IOException failure = new IOException("broken");
+        Recorder exception = new Recorder();
+        Recorder error = new Recorder();
+        scheduler.submit("1", "a", 0, cancelled -> {
+            throw failure;
+        }, exception);
+        scheduler.submit("2", "b", 0, cancelled -> {
+            throw new OutOfMemoryError();
+        }, error);
+
+        gate.countDown();
+        exception.await();
+        error.await();
+        assertSame(failure, exception.error);
+        // Error 也要结束作业，转换为 WaveformException
+        assertTrue(error.error instanceof WaveformException);
+        assertFalse(scheduler.isBusy());
+    }
+
+    @Test
+    public void cancelAllNotifiesEveryRequest() {
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        scheduler.submit("1", "k", 0, cancelled -> "k", first);
+        scheduler.submit("2", "k", 0, cancelled -> "k", second);
+
+        scheduler.cancelAll();
+        assertEquals(1, first.cancelled.get());
+        assertEquals(1, second.cancelled.get());
+        assertEquals(1, gateListener.cancelled.get());
+        assertFalse(scheduler.isBusy());
+        assertFalse(scheduler.cancel("1"));
+    }
+
+    private static WaveformScheduler.Task<String> counting(AtomicInteger runs, String result) {
+        return cancelled -> {
+            runs.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static WaveformScheduler.Task<String> recording(List<String> order, String name) {
+        return cancelled -> {
+            order.add(name);
+            return name;
+        };
+    }
+
+    private static final class Recorder implements WaveformScheduler.Listener<String> {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        volatile String result;
+        volatile Exception error;
+
+        @Override
+        public void onSuccess(String result) {
+            this.result = result;
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onError(Exception error) {
+            this.error = error;
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        @Override
+        public void onCancelled() {
+            cancelled.incrementAndGet();
+            calls.incrementAndGet();
+            done.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("listener not called", done.await(5, TimeUnit.SECONDS));
+        }
+
+        int events() {
+            return calls.get();
+        }
+    }
+}
@@ -7,7 +7,7 @@ import {
   Alert,
   ScrollView,
 } from 'react-native';
-import { generateWaveform, isProcessing, cancelWaveform } from '../src/index';
+import { generateWaveform, isProcessing, cancelWaveform, toWaveformPoints } from '../src/index';
 
 export default function SimpleExample() {
   const [loading, setLoading] = useState(false);
@@ -36,9 +36,10 @@ export default function SimpleExample() {
           // 回调函数，处理生成结果
           setLoading(false); // 处理完成，设置loading为false
           
-          if (waveformResult.data) {
-            setWaveformData(waveformResult.data);
-            console.log('波形数据生成完成:', waveformResult.data.length, '个点');
+          if (waveformResult.values) {
+            const points = toWaveformPoints(waveformResult);
+            setWaveformData(points);
+            console.log('波形数据生成完成:', points.length, '个点');
           } else if (waveformResult.error) {
             console.log('波形生成失败:', waveformResult.error);
             Alert.alert('错误', waveformResult.error);
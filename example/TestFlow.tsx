@@ -35,8 +35,8 @@ export default function TestFlow() {
         },
         (waveformResult) => {
           addLog('收到回调结果:');
-          if (waveformResult.data) {
-            addLog(`✅ 成功 - 数据点数: ${waveformResult.data.length}`);
+          if (waveformResult.values) {
+            addLog(`✅ 成功 - 数据点数: ${waveformResult.values.length}`);
             setLoading(false);
           } else if (waveformResult.error) {
             addLog(`❌ 失败 - 错误: ${waveformResult.error}`);
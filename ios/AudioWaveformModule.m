@@ -2,11 +2,12 @@
 
 @interface RCT_EXTERN_MODULE(AudioWaveform, NSObject)
 RCT_EXTERN_METHOD(getWaveform:(NSDictionary *)options
-                  resolver:(RCTPromiseResolveBlock)resolve
-                  rejecter:(RCTPromiseResolveBlock)reject)
+                  callback:(RCTResponseSenderBlock)callback)
 RCT_EXTERN_METHOD(getWaveformState:(RCTPromiseResolveBlock)resolve
                   rejecter:(RCTPromiseRejectBlock)reject)
 RCT_EXTERN_METHOD(onStateChange:(RCTResponseSenderBlock)callback)
 RCT_EXTERN_METHOD(cancel)
-RCT_EXTERN_METHOD(isProcessing:(RCTResponseSenderBlock)callback)
+RCT_EXTERN_METHOD(cancelJob:(NSString *)jobId)
+RCT_EXTERN_METHOD(isProcessing:(RCTPromiseResolveBlock)resolve
+                  rejecter:(RCTPromiseRejectBlock)reject)
 @end
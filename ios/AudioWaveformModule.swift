@@ -5,41 +5,73 @@ import React
 @objc(AudioWaveformModule)
 class AudioWaveformModule: NSObject {
   
-  private var isProcessing = false
-  private var isCancelled = false
+  private let stateLock = NSLock()
+  private var pendingJobs = 0
+  private var cancelGeneration = 0
+  // 尚未结束的任务 ID 及其请求数，只有其中的任务可以被单独取消
+  private var pendingJobIds = [String: Int]()
+  private var cancelledJobs = Set<String>()
   private let processingQueue = DispatchQueue(label: "AudioWaveformProcessing", qos: .userInitiated)
 
+  private var isProcessing: Bool {
+    stateLock.lock()
+    defer { stateLock.unlock() }
+    return pendingJobs > 0
+  }
+
   @objc
   func getWaveform(_ options: [String: Any],
                    callback: @escaping RCTResponseSenderBlock) {
+    let jobId = options["jobId"] as? String ?? UUID().uuidString
     
-    // 检查是否已经在处理
-    if isProcessing {
-      print("已有任务正在处理中")
-      return
-    }
+    // 任务依次排队处理，不再丢弃后到的请求
+    stateLock.lock()
+    pendingJobs += 1
+    pendingJobIds[jobId, default: 0] += 1
+    let generation = cancelGeneration
+    stateLock.unlock()
     
     // 在后台队列中处理
     processingQueue.async {
-      self.processWaveformInBackground(options, callback: callback)
+      self.processWaveformInBackground(options, jobId: jobId, generation: generation, callback: callback)
+      self.stateLock.lock()
+      self.pendingJobs -= 1
+      let remaining = (self.pendingJobIds[jobId] ?? 1) - 1
+      if remaining > 0 {
+        self.pendingJobIds[jobId] = remaining
+      } else {
+        self.pendingJobIds.removeValue(forKey: jobId)
+        self.cancelledJobs.remove(jobId)
+      }
+      self.stateLock.unlock()
     }
   }
 
+  private func isJobCancelled(_ jobId: String, generation: Int) -> Bool {
+    stateLock.lock()
+    defer { stateLock.unlock() }
+    return generation != cancelGeneration || cancelledJobs.contains(jobId)
+  }
+
   private func processWaveformInBackground(_ options: [String: Any],
+                                         jobId: String,
+                                         generation: Int,
                                          callback: @escaping RCTResponseSenderBlock) {
     guard let urlString = options["url"] as? String, !urlString.isEmpty else {
-      let errorResult: [String: Any] = ["error": "音频文件路径不能为空"]
+      let errorResult: [String: Any] = ["jobId": jobId, "error": "音频文件路径不能为空"]
       callback([errorResult])
       return
     }
     
+    if isJobCancelled(jobId, generation: generation) {
+      let cancelResult: [String: Any] = ["jobId": jobId, "error": "任务已取消"]
+      callback([cancelResult])
+      return
+    }
+    
     let samples = options["samples"] as? Int ?? 200
     let waveformType = options["type"] as? String ?? "amplitude"
     
-    // 设置处理状态
-    isProcessing = true
-    isCancelled = false
-    
     let fileURL: URL
     if urlString.hasPrefix("file://") {
       fileURL = URL(fileURLWithPath: String(urlString.dropFirst(7)))
@@ -50,7 +82,7 @@ class AudioWaveformModule: NSObject {
     do {
       let asset = AVURLAsset(url: fileURL)
       guard let track = asset.tracks(withMediaType: .audio).first else {
-        let errorResult: [String: Any] = ["error": "未找到音频轨道"]
+        let errorResult: [String: Any] = ["jobId": jobId, "error": "未找到音频轨道"]
         callback([errorResult])
         return
       }
@@ -92,8 +124,8 @@ class AudioWaveformModule: NSObject {
       
       while let sampleBuffer = trackOutput.copyNextSampleBuffer() {
         // 检查是否被取消
-        if isCancelled {
-          let cancelResult: [String: Any] = ["error": "任务已取消"]
+        if isJobCancelled(jobId, generation: generation) {
+          let cancelResult: [String: Any] = ["jobId": jobId, "error": "任务已取消"]
           callback([cancelResult])
           return
         }
@@ -149,7 +181,7 @@ class AudioWaveformModule: NSObject {
       }
       
       if waveform.isEmpty {
-        let errorResult: [String: Any] = ["error": "未提取到音频数据"]
+        let errorResult: [String: Any] = ["jobId": jobId, "error": "未提取到音频数据"]
         callback([errorResult])
         return
       }
@@ -184,24 +216,33 @@ class AudioWaveformModule: NSObject {
       
       // 通过回调返回成功结果
       let finalResult: [String: Any] = [
+        "jobId": jobId,
         "data": result
       ]
       callback([finalResult])
       
     } catch {
-      let errorResult: [String: Any] = ["error": "音频解析失败"]
+      let errorResult: [String: Any] = ["jobId": jobId, "error": "音频解析失败"]
       callback([errorResult])
-    } finally {
-      isProcessing = false
     }
   }
   
   @objc
   func cancel() {
-    print("取消波形生成任务")
-    isCancelled = true
-    // 重置处理状态
-    isProcessing = false
+    print("取消全部波形生成任务")
+    stateLock.lock()
+    cancelGeneration += 1
+    stateLock.unlock()
+  }
+  
+  @objc
+  func cancelJob(_ jobId: String) {
+    stateLock.lock()
+    // 未知或已结束的 ID 不登记，否则之后复用该 ID 的任务会被直接取消
+    if pendingJobIds[jobId] != nil {
+      cancelledJobs.insert(jobId)
+    }
+    stateLock.unlock()
   }
   
   @objc
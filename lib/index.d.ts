@@ -1,7 +1,30 @@
+export type WaveformType = "amplitude" | "peak" | "rms" | "logarithmic";
+export type WaveformMode = "exact" | "fast";
+export type WaveformMetric = WaveformType | "min" | "max";
+export type WaveformMetrics = Partial<Record<WaveformMetric, Float32Array>>;
+export interface PcmFormat {
+    sampleRate?: number;
+    channels?: number;
+    encoding?: "8bit" | "16bit" | "24bit" | "32bit" | "float";
+}
 export interface WaveformOptions {
     url: string;
     samples?: number;
-    type?: "amplitude" | "peak" | "rms" | "logarithmic";
+    type?: WaveformType;
+    format?: "packed" | "points";
+    cache?: boolean;
+    parallel?: boolean;
+    segments?: number;
+    mode?: WaveformMode;
+    windowFrames?: number;
+    metrics?: WaveformMetric[];
+    channels?: boolean;
+    progress?: boolean;
+    progressInterval?: number;
+    stats?: boolean;
+    pcmFormat?: PcmFormat;
+    priority?: number;
+    jobId?: string;
 }
 export interface WaveformPoint {
     time: number;
@@ -9,12 +32,148 @@ export interface WaveformPoint {
     index: number;
 }
 export interface WaveformResult {
+    jobId?: string;
+    format?: "packed" | "points";
+    duration?: number;
+    samples?: number;
+    type?: WaveformType;
+    mode?: WaveformMode;
+    values?: Float32Array;
+    metrics?: WaveformMetrics;
+    channels?: WaveformMetrics[];
     data?: WaveformPoint[];
+    stats?: WaveformJobStats;
+    error?: string;
+}
+export interface WaveformProgressEvent {
+    jobId: string;
+    progress: number;
+    startIndex: number;
+    endIndex: number;
+    values: number[];
+}
+export interface WaveformJobStats {
+    source: "decoder" | "pcm" | "cache";
+    extractorSetupMs: number;
+    codecSetupMs: number;
+    decodeMs: number;
+    reduceMs: number;
+    serializeMs: number;
+    totalMs: number;
+    bytesDecoded: number;
+    samplesDecoded: number;
+    samplesPerSec: number;
+    heapDeltaBytes: number;
+}
+export interface WaveformStats {
+    totals: Omit<WaveformJobStats, "source"> & {
+        jobs: number;
+    };
+    recent: WaveformJobStats[];
+    decoders: {
+        idle: number;
+        inUse: number;
+    };
+}
+export interface WaveformCacheStats {
+    memoryHits: number;
+    diskHits: number;
+    misses: number;
+    evictions: number;
+    memoryEntries: number;
+    diskEntries: number;
+    diskBytes: number;
+    httpBytes: number;
+}
+export interface WaveformBatchOptions extends Pick<WaveformOptions, "samples" | "type" | "cache" | "mode" | "windowFrames" | "priority" | "jobId"> {
+    stream?: boolean;
+}
+export interface WaveformBatchItem {
+    url: string;
+    indices: number[];
+    cached: boolean;
+    mode: WaveformMode;
+    duration?: number;
+    values?: Float32Array;
+    error?: string;
+}
+export interface WaveformBatchStats {
+    files: number;
+    cached: number;
+    decoded: number;
+    failed: number;
+    decodeMs: number;
+    elapsedMs: number;
+    filesPerSec: number;
+}
+export interface WaveformBatchResult {
+    jobId: string;
+    count: number;
+    samples: number;
+    type: WaveformType;
+    mode: WaveformMode;
+    items: WaveformBatchItem[];
+    stats: WaveformBatchStats;
+}
+export interface WaveformRangeResult {
+    url: string;
+    duration: number;
+    start: number;
+    end: number;
+    points: number;
+    level: number;
+    binDuration: number;
+    min: Float32Array;
+    max: Float32Array;
+    rms: Float32Array;
+}
+export interface LiveWaveformOptions {
+    sampleRate?: number;
+    channels?: 1 | 2;
+    interval?: number;
+    updateInterval?: number;
+    type?: WaveformType;
+    output?: string;
+    samples?: number;
+}
+export interface LiveWaveformUpdate {
+    startIndex?: number;
+    endIndex?: number;
+    values?: number[];
+    level?: number;
+    duration?: number;
     error?: string;
 }
-export declare function generateWaveform(options: WaveformOptions, callback: (result: WaveformResult) => void): {
+export interface LiveWaveformInfo {
+    sampleRate: number;
+    channels: number;
+    interval: number;
+}
+export interface LiveWaveformResult extends LiveWaveformInfo {
+    url?: string;
+    duration: number;
+    type: WaveformType;
+    values: Float32Array;
+    waveform?: WaveformResult;
+    error?: string;
+}
+export declare function toWaveformPoints(result: WaveformResult): WaveformPoint[];
+export declare function generateWaveform(options: WaveformOptions, callback: (result: WaveformResult) => void, onProgress?: (event: WaveformProgressEvent) => void): {
     loading: boolean;
+    jobId: string;
+};
+export declare function getWaveforms(urls: string[], options?: WaveformBatchOptions, onItem?: (item: WaveformBatchItem) => void): Promise<WaveformBatchResult>;
+export declare function addWaveformProgressListener(listener: (event: WaveformProgressEvent) => void): {
+    remove(): void;
 };
+export declare function startLiveWaveform(options?: LiveWaveformOptions, onUpdate?: (update: LiveWaveformUpdate) => void): Promise<LiveWaveformInfo>;
+export declare function stopLiveWaveform(): Promise<LiveWaveformResult>;
 export declare function isProcessing(): Promise<boolean>;
-export declare function cancelWaveform(): void;
+export declare function cancelWaveform(jobId?: string): void;
+export declare function getWaveformRange(url: string, startSec: number, endSec: number, points: number): Promise<WaveformRangeResult>;
+export declare function prewarmDecoders(mimeTypes: string[]): Promise<number>;
+export declare function getStats(): Promise<WaveformStats | null>;
+export declare function setDebugLogging(enabled: boolean): void;
+export declare function getCacheStats(): Promise<WaveformCacheStats | null>;
+export declare function clearWaveformCache(): Promise<void>;
 //# sourceMappingURL=index.d.ts.map
\ No newline at end of file
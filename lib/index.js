@@ -1,24 +1,269 @@
 "use strict";
+var __rest = (this && this.__rest) || function (s, e) {
+    var t = {};
+    for (var p in s) if (Object.prototype.hasOwnProperty.call(s, p) && e.indexOf(p) < 0)
+        t[p] = s[p];
+    if (s != null && typeof Object.getOwnPropertySymbols === "function")
+        for (var i = 0, p = Object.getOwnPropertySymbols(s); i < p.length; i++) {
+            if (e.indexOf(p[i]) < 0 && Object.prototype.propertyIsEnumerable.call(s, p[i]))
+                t[p[i]] = s[p[i]];
+        }
+    return t;
+};
 Object.defineProperty(exports, "__esModule", { value: true });
+exports.toWaveformPoints = toWaveformPoints;
 exports.generateWaveform = generateWaveform;
+exports.getWaveforms = getWaveforms;
+exports.addWaveformProgressListener = addWaveformProgressListener;
+exports.startLiveWaveform = startLiveWaveform;
+exports.stopLiveWaveform = stopLiveWaveform;
 exports.isProcessing = isProcessing;
 exports.cancelWaveform = cancelWaveform;
+exports.getWaveformRange = getWaveformRange;
+exports.prewarmDecoders = prewarmDecoders;
+exports.getStats = getStats;
+exports.setDebugLogging = setDebugLogging;
+exports.getCacheStats = getCacheStats;
+exports.clearWaveformCache = clearWaveformCache;
 const react_native_1 = require("react-native");
 const { AudioWaveform } = react_native_1.NativeModules;
-// 生成波形数据 - 同步返回loading状态，通过回调通知结果
-function generateWaveform(options, callback) {
+const PROGRESS_EVENT = "AudioWaveformProgress";
+const BATCH_ITEM_EVENT = "AudioWaveformBatchItem";
+const LIVE_EVENT = "AudioWaveformLive";
+const BASE64_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+const BASE64_LOOKUP = new Uint8Array(128);
+for (let i = 0; i < BASE64_CHARS.length; i++) {
+    BASE64_LOOKUP[BASE64_CHARS.charCodeAt(i)] = i;
+}
+// base64 -> Float32Array（RN 支持的平台均为小端字节序）
+function decodeFloat32(base64) {
+    var _a, _b, _c, _d;
+    let length = base64.length;
+    while (length > 0 && base64.charCodeAt(length - 1) === 61 /* = */) {
+        length--;
+    }
+    const bytes = new Uint8Array((length * 3) >> 2);
+    let byteIndex = 0;
+    for (let i = 0; i < length; i += 4) {
+        const a = (_a = BASE64_LOOKUP[base64.charCodeAt(i)]) !== null && _a !== void 0 ? _a : 0;
+        const b = (_b = BASE64_LOOKUP[base64.charCodeAt(i + 1)]) !== null && _b !== void 0 ? _b : 0;
+        const c = (_c = BASE64_LOOKUP[base64.charCodeAt(i + 2)]) !== null && _c !== void 0 ? _c : 0;
+        const d = (_d = BASE64_LOOKUP[base64.charCodeAt(i + 3)]) !== null && _d !== void 0 ? _d : 0;
+        bytes[byteIndex++] = (a << 2) | (b >> 4);
+        if (i + 2 < length)
+            bytes[byteIndex++] = ((b & 15) << 4) | (c >> 2);
+        if (i + 3 < length)
+            bytes[byteIndex++] = ((c & 3) << 6) | d;
+    }
+    return new Float32Array(bytes.buffer, 0, bytes.length >> 2);
+}
+function decodeMetrics(native) {
+    const metrics = {};
+    for (const [name, values] of Object.entries(native)) {
+        if (values !== undefined) {
+            metrics[name] = decodeFloat32(values);
+        }
+    }
+    return metrics;
+}
+function normalizeResult(native, format) {
+    const { values, metrics, channels } = native, rest = __rest(native, ["values", "metrics", "channels"]);
+    const result = rest;
+    if (metrics !== undefined) {
+        result.metrics = decodeMetrics(metrics);
+    }
+    if (channels !== undefined) {
+        result.channels = channels.map(decodeMetrics);
+    }
+    if (values !== undefined) {
+        result.values = decodeFloat32(values);
+    }
+    else if (format === "packed" && native.data) {
+        // 不支持 packed 的平台（iOS）返回逐点数据，在 JS 层转换
+        result.values = Float32Array.from(native.data, (point) => point.value);
+        result.samples = native.data.length;
+        result.format = "packed";
+        delete result.data;
+    }
+    return result;
+}
+// 由结果还原逐点数据（time 为每个区间的中点）
+function toWaveformPoints(result) {
+    var _a;
+    if (result.data) {
+        return result.data;
+    }
+    const values = result.values;
+    if (!values) {
+        return [];
+    }
+    const timePerPoint = ((_a = result.duration) !== null && _a !== void 0 ? _a : 0) / values.length;
+    return Array.from(values, (value, index) => ({
+        time: index * timePerPoint + timePerPoint / 2,
+        value,
+        index,
+    }));
+}
+let jobCounter = 0;
+function createJobId() {
+    jobCounter += 1;
+    return `wf-${Date.now().toString(36)}-${jobCounter}`;
+}
+// 生成波形数据 - 同步返回loading状态和任务ID，通过回调通知结果
+// 传入 onProgress 时会在解码过程中收到进度和已完成的波形片段，任务结束后自动取消订阅
+function generateWaveform(options, callback, onProgress) {
+    var _a, _b, _c;
+    const jobId = (_a = options.jobId) !== null && _a !== void 0 ? _a : createJobId();
     // 立即返回loading状态
-    const initialState = { loading: true };
+    const initialState = { loading: true, jobId };
+    let subscription;
+    if (onProgress) {
+        subscription = addWaveformProgressListener((event) => {
+            if (event.jobId === jobId) {
+                onProgress(event);
+            }
+        });
+    }
+    const format = (_b = options.format) !== null && _b !== void 0 ? _b : "packed";
     // 异步处理，完成后通过回调通知
-    AudioWaveform.getWaveform(options, callback);
+    AudioWaveform.getWaveform(Object.assign(Object.assign({}, options), { jobId, format, progress: (_c = options.progress) !== null && _c !== void 0 ? _c : onProgress !== undefined }), (result) => {
+        subscription === null || subscription === void 0 ? void 0 : subscription.remove();
+        callback(normalizeResult(result, format));
+    });
     return initialState;
 }
+// 批量生成波形（仅 Android）：一次调用处理整个列表，重复路径只处理一次，已缓存的结果直接返回
+// 传入 onItem 时每完成一个文件回调一次，可边解码边显示
+async function getWaveforms(urls, options = {}, onItem) {
+    var _a, _b;
+    if (!AudioWaveform.getWaveforms) {
+        throw new Error("getWaveforms is not supported on this platform");
+    }
+    const jobId = (_a = options.jobId) !== null && _a !== void 0 ? _a : createJobId();
+    const stream = (_b = options.stream) !== null && _b !== void 0 ? _b : onItem !== undefined;
+    const streamed = new Map();
+    const subscription = stream
+        ? react_native_1.DeviceEventEmitter.addListener(BATCH_ITEM_EVENT, (event) => {
+            if (event.jobId !== jobId)
+                return;
+            const { jobId: _jobId, values } = event, rest = __rest(event, ["jobId", "values"]);
+            const item = Object.assign({}, rest);
+            if (values !== undefined) {
+                item.values = decodeFloat32(values);
+                streamed.set(item.url, item.values);
+            }
+            onItem === null || onItem === void 0 ? void 0 : onItem(item);
+        })
+        : undefined;
+    try {
+        const native = await AudioWaveform.getWaveforms(urls, Object.assign(Object.assign({}, options), { jobId,
+            stream }));
+        const { values, items } = native, rest = __rest(native, ["values", "items"]);
+        const packed = values !== undefined ? decodeFloat32(values) : undefined;
+        return Object.assign(Object.assign({}, rest), { items: items.map((nativeItem, index) => {
+                var _a;
+                const { values: _values } = nativeItem, fields = __rest(nativeItem, ["values"]);
+                const item = Object.assign({}, fields);
+                const itemValues = (_a = packed === null || packed === void 0 ? void 0 : packed.subarray(index * native.samples, (index + 1) * native.samples)) !== null && _a !== void 0 ? _a : streamed.get(item.url);
+                if (item.error === undefined && itemValues !== undefined) {
+                    item.values = itemValues;
+                }
+                return item;
+            }) });
+    }
+    finally {
+        subscription === null || subscription === void 0 ? void 0 : subscription.remove();
+    }
+}
+// 订阅所有任务的解码进度事件（需在 options 中设置 progress: true）
+function addWaveformProgressListener(listener) {
+    return react_native_1.DeviceEventEmitter.addListener(PROGRESS_EVENT, listener);
+}
+let liveSubscription;
+// 开始实时录音波形（仅 Android，需已获得录音权限），onUpdate 按 updateInterval 收到新完成的区间
+async function startLiveWaveform(options = {}, onUpdate) {
+    if (!AudioWaveform.startLiveWaveform) {
+        throw new Error("实时录音波形仅支持 Android");
+    }
+    liveSubscription === null || liveSubscription === void 0 ? void 0 : liveSubscription.remove();
+    liveSubscription = onUpdate ? react_native_1.DeviceEventEmitter.addListener(LIVE_EVENT, onUpdate) : undefined;
+    try {
+        return await AudioWaveform.startLiveWaveform(options);
+    }
+    catch (error) {
+        liveSubscription === null || liveSubscription === void 0 ? void 0 : liveSubscription.remove();
+        liveSubscription = undefined;
+        throw error;
+    }
+}
+// 停止实时录音，返回全部区间的波形值；设置了 output 时附带录音文件的完整波形
+async function stopLiveWaveform() {
+    try {
+        const native = await AudioWaveform.stopLiveWaveform();
+        const { values, waveform } = native, rest = __rest(native, ["values", "waveform"]);
+        const result = Object.assign(Object.assign({}, rest), { values: decodeFloat32(values) });
+        if (waveform !== undefined) {
+            result.waveform = normalizeResult(waveform, "packed");
+        }
+        return result;
+    }
+    finally {
+        liveSubscription === null || liveSubscription === void 0 ? void 0 : liveSubscription.remove();
+        liveSubscription = undefined;
+    }
+}
 // 检查是否正在处理
 function isProcessing() {
     return AudioWaveform.isProcessing();
 }
-// 取消当前任务
-function cancelWaveform() {
-    AudioWaveform.cancel();
+// 取消任务：传入任务ID只取消该任务，不传则取消全部任务
+function cancelWaveform(jobId) {
+    if (jobId !== undefined) {
+        AudioWaveform.cancelJob(jobId);
+    }
+    else {
+        AudioWaveform.cancel();
+    }
+}
+// 查询时间范围内的波形（仅 Android）：首次调用时为文件构建并缓存波形金字塔，之后的缩放和滚动查询无需重新解码
+async function getWaveformRange(url, startSec, endSec, points) {
+    if (!AudioWaveform.getWaveformRange) {
+        throw new Error("getWaveformRange is not supported on this platform");
+    }
+    const native = await AudioWaveform.getWaveformRange(url, startSec, endSec, points);
+    return Object.assign(Object.assign({}, native), { min: decodeFloat32(native.min), max: decodeFloat32(native.max), rms: decodeFloat32(native.rms) });
+}
+// 预先创建解码器（仅 Android），如 ["audio/mp4a-latm", "audio/mpeg"]；返回实际新建的实例数
+function prewarmDecoders(mimeTypes) {
+    if (!AudioWaveform.prewarm) {
+        return Promise.resolve(0);
+    }
+    return AudioWaveform.prewarm(mimeTypes);
+}
+// 获取作业统计（仅 Android，其他平台返回 null）
+function getStats() {
+    if (!AudioWaveform.getStats) {
+        return Promise.resolve(null);
+    }
+    return AudioWaveform.getStats();
+}
+// 开启或关闭原生层的解码调试日志（仅 Android），默认关闭
+function setDebugLogging(enabled) {
+    var _a;
+    (_a = AudioWaveform.setDebugLogging) === null || _a === void 0 ? void 0 : _a.call(AudioWaveform, enabled);
+}
+// 获取波形缓存统计（仅 Android，其他平台返回 null）
+function getCacheStats() {
+    if (!AudioWaveform.getCacheStats) {
+        return Promise.resolve(null);
+    }
+    return AudioWaveform.getCacheStats();
+}
+// 清空波形缓存
+function clearWaveformCache() {
+    if (!AudioWaveform.clearCache) {
+        return Promise.resolve();
+    }
+    return AudioWaveform.clearCache();
 }
 //# sourceMappingURL=index.js.map
\ No newline at end of file
@@ -1,9 +1,38 @@
-import { NativeModules } from "react-native";
+import { DeviceEventEmitter, NativeModules } from "react-native";
+
+export type WaveformType = "amplitude" | "peak" | "rms" | "logarithmic";
+
+export type WaveformMode = "exact" | "fast";
+
+// 一次解码同时得到的所有指标；min/max 为带符号的样本极值（-1.0~1.0）
+export type WaveformMetric = WaveformType | "min" | "max";
+
+export type WaveformMetrics = Partial<Record<WaveformMetric, Float32Array>>;
+
+export interface PcmFormat {
+  sampleRate?: number; // 采样率，默认 44100
+  channels?: number; // 声道数，默认 1
+  encoding?: "8bit" | "16bit" | "24bit" | "32bit" | "float"; // 样本编码，默认 16bit（小端）
+}
 
 export interface WaveformOptions {
   url: string; // 音频文件路径，本地或网络
   samples?: number; // 波形点数，默认 200
-  type?: "amplitude" | "peak" | "rms" | "logarithmic"; // 波形类型
+  type?: WaveformType; // 波形类型
+  format?: "packed" | "points"; // 结果格式，默认 packed（紧凑 Float32Array），points 为旧版逐点对象数组
+  cache?: boolean; // 是否使用波形缓存，默认 true（仅 Android，本地文件）
+  parallel?: boolean; // 是否分段并行解码（仅 Android），适合长音频，默认 false
+  segments?: number; // 并行分段数，默认取 CPU 核数与解码器实例上限的较小值
+  mode?: WaveformMode; // 解码模式，默认 exact；fast 为近似模式（仅 Android），适合列表缩略图
+  windowFrames?: number; // fast 模式下每个点解码的 PCM 帧数，默认 4096，越大越接近完整结果
+  metrics?: WaveformMetric[]; // 额外返回的指标（仅 Android），结果中的 metrics 字段
+  channels?: boolean; // 是否同时返回各声道单独的指标（仅 Android），需配合 metrics 使用，默认 false
+  progress?: boolean; // 是否在解码过程中推送进度事件（仅 Android），默认 false
+  progressInterval?: number; // 进度事件的最小间隔（毫秒），默认 100
+  stats?: boolean; // 是否在结果中附带各阶段耗时统计（仅 Android），默认 false
+  pcmFormat?: PcmFormat; // 裸 PCM 文件的格式（仅 Android）；WAV 文件会自动识别，无需设置
+  priority?: number; // 任务优先级，数值越大越先执行，默认 0（如可见行使用更高优先级）
+  jobId?: string; // 任务 ID，不传时自动生成；与未完成的任务重复时返回错误
 }
 
 export interface WaveformPoint {
@@ -13,32 +42,470 @@ export interface WaveformPoint {
 }
 
 export interface WaveformResult {
-  data?: WaveformPoint[]; // 波形数据
+  jobId?: string; // 对应的任务 ID
+  format?: "packed" | "points"; // 结果格式
+  duration?: number; // 音频时长（秒）
+  samples?: number; // 波形点数
+  type?: WaveformType; // 波形类型
+  mode?: WaveformMode; // 实际使用的解码模式，WAV/PCM 文件始终为 exact
+  values?: Float32Array; // 波形值（0.0-1.0），packed 格式
+  metrics?: WaveformMetrics; // 请求的各项指标（混合声道）
+  channels?: WaveformMetrics[]; // 各声道单独的指标
+  data?: WaveformPoint[]; // 逐点波形数据，points 格式
+  stats?: WaveformJobStats; // 作业统计（仅 options.stats 为 true 时）
   error?: string; // 错误信息（可选）
 }
 
+// 原生层返回的结果，packed 格式的 values 为 float32 小端字节的 base64
+interface NativeWaveformResult extends Omit<WaveformResult, "values" | "metrics" | "channels"> {
+  values?: string;
+  metrics?: Partial<Record<WaveformMetric, string>>;
+  channels?: Partial<Record<WaveformMetric, string>>[];
+}
+
+export interface WaveformProgressEvent {
+  jobId: string; // 对应的任务 ID
+  progress: number; // 解码进度百分比（0-100）
+  startIndex: number; // 本次新完成片段的起始索引
+  endIndex: number; // 本次新完成片段的结束索引（不含）
+  values: number[]; // 片段内各点的波形值（0.0-1.0），并行解码时为空
+}
+
+export interface WaveformJobStats {
+  source: "decoder" | "pcm" | "cache"; // 数据来源：解码器、直接读取 WAV/PCM、缓存命中
+  extractorSetupMs: number; // 打开文件、选择音轨耗时
+  codecSetupMs: number; // 获取并配置解码器耗时
+  decodeMs: number; // 解码耗时（不含归约）
+  reduceMs: number; // 归约为波形点耗时
+  serializeMs: number; // 生成结果耗时
+  totalMs: number; // 作业总耗时（不含排队和序列化）
+  bytesDecoded: number; // 解码输出的 PCM 字节数
+  samplesDecoded: number; // 解码输出的样本数（所有声道）
+  samplesPerSec: number; // 解码+归约吞吐量
+  heapDeltaBytes: number; // 阶段边界采样的 Java 堆增量最大值，不是真实峰值
+}
+
+export interface WaveformStats {
+  totals: Omit<WaveformJobStats, "source"> & { jobs: number }; // 所有作业累计
+  recent: WaveformJobStats[]; // 最近 20 个作业
+  decoders: { idle: number; inUse: number }; // 解码器池状态
+}
+
+export interface WaveformCacheStats {
+  memoryHits: number; // 内存缓存命中次数
+  diskHits: number; // 磁盘缓存命中次数
+  misses: number; // 未命中次数
+  evictions: number; // 因容量上限被淘汰的条目数
+  memoryEntries: number; // 内存缓存条目数
+  diskEntries: number; // 磁盘缓存条目数
+  diskBytes: number; // 磁盘缓存占用字节数
+  httpBytes: number; // 网络文件字节缓存占用字节数
+}
+
+export interface WaveformBatchOptions
+  extends Pick<WaveformOptions, "samples" | "type" | "cache" | "mode" | "windowFrames" | "priority" | "jobId"> {
+  stream?: boolean; // 是否每完成一个文件推送一次结果，默认 false；传入 onItem 时自动开启
+}
+
+export interface WaveformBatchItem {
+  url: string; // 音频文件路径
+  indices: number[]; // 该路径在输入数组中的所有位置（重复路径只处理一次）
+  cached: boolean; // 是否来自缓存
+  mode: WaveformMode; // 实际使用的解码模式，WAV/PCM 文件始终为 exact
+  duration?: number; // 音频时长（秒）
+  values?: Float32Array; // 波形值（0.0-1.0），失败时为空
+  error?: string; // 错误信息
+}
+
+export interface WaveformBatchStats {
+  files: number; // 去重后的文件数
+  cached: number; // 缓存命中数
+  decoded: number; // 实际解码数
+  failed: number; // 失败数
+  decodeMs: number; // 各文件解码耗时之和（毫秒）
+  elapsedMs: number; // 批次总耗时（毫秒）
+  filesPerSec: number; // 吞吐量（文件/秒）
+}
+
+export interface WaveformBatchResult {
+  jobId: string; // 批次任务 ID，可用于 cancelWaveform
+  count: number; // 输入的路径数
+  samples: number; // 每个文件的波形点数
+  type: WaveformType; // 波形类型
+  mode: WaveformMode; // 实际使用的解码模式，任一文件按 fast 计算时为 fast
+  items: WaveformBatchItem[]; // 去重后的各文件结果，按首次出现的顺序
+  stats: WaveformBatchStats; // 批次统计
+}
+
+// 原生层返回的批量结果：packed 时 values 为所有文件波形拼接后的 base64，stream 时各文件的 values 通过事件推送
+interface NativeWaveformBatchItem extends Omit<WaveformBatchItem, "values"> {
+  values?: string;
+}
+
+interface NativeWaveformBatchResult extends Omit<WaveformBatchResult, "items"> {
+  items: NativeWaveformBatchItem[];
+  values?: string;
+}
+
+export interface WaveformRangeResult {
+  url: string; // 音频文件路径
+  duration: number; // 音频时长（秒）
+  start: number; // 实际查询的起始时间（秒），已限制在音频范围内
+  end: number; // 实际查询的结束时间（秒）
+  points: number; // 点数
+  level: number; // 使用的金字塔层级，0 为最细
+  binDuration: number; // 该层级每个区间的时长（秒）
+  min: Float32Array; // 每个点的最小样本值（-1.0~1.0）
+  max: Float32Array; // 每个点的最大样本值（-1.0~1.0）
+  rms: Float32Array; // 每个点的均方根值（0.0-1.0）
+}
+
+// 原生层返回的范围结果，min/max/rms 为 float32 小端字节的 base64
+interface NativeWaveformRangeResult
+  extends Omit<WaveformRangeResult, "min" | "max" | "rms"> {
+  min: string;
+  max: string;
+  rms: string;
+}
+
+export interface LiveWaveformOptions {
+  sampleRate?: number; // 录音采样率，默认 44100
+  channels?: 1 | 2; // 录音声道数，默认 1
+  interval?: number; // 每个波形区间的时长（毫秒），默认 50
+  updateInterval?: number; // 推送更新的最小间隔（毫秒），默认 50
+  type?: WaveformType; // 区间取值的波形类型，默认 amplitude
+  output?: string; // 同时写入的 WAV 文件路径，不传时不写文件
+  samples?: number; // 停止后生成的完整文件波形的点数，默认 200（需设置 output）
+}
+
+export interface LiveWaveformUpdate {
+  startIndex?: number; // 本次新完成区间的起始索引
+  endIndex?: number; // 本次新完成区间的结束索引（不含）
+  values?: number[]; // 新完成区间的波形值（0.0-1.0）
+  level?: number; // 最近一个区间的峰值（0.0-1.0），可用于音量指示
+  duration?: number; // 已录制时长（秒）
+  error?: string; // 录音出错时的错误信息
+}
+
+export interface LiveWaveformInfo {
+  sampleRate: number; // 实际录音采样率
+  channels: number; // 实际录音声道数
+  interval: number; // 每个区间的实际时长（秒）
+}
+
+export interface LiveWaveformResult extends LiveWaveformInfo {
+  url?: string; // 写入的 WAV 文件路径
+  duration: number; // 录制时长（秒）
+  type: WaveformType; // 波形类型
+  values: Float32Array; // 全部区间的波形值（0.0-1.0）
+  waveform?: WaveformResult; // WAV 文件的完整波形，与以相同 samples/type 调用 generateWaveform 的结果一致
+  error?: string; // 录音中途出错时的错误信息
+}
+
+// 原生层返回的录音结果，values 为 float32 小端字节的 base64
+interface NativeLiveWaveformResult extends Omit<LiveWaveformResult, "values" | "waveform"> {
+  values: string;
+  waveform?: NativeWaveformResult;
+}
+
 const { AudioWaveform } = NativeModules;
 
-// 生成波形数据 - 同步返回loading状态，通过回调通知结果
+const PROGRESS_EVENT = "AudioWaveformProgress";
+const BATCH_ITEM_EVENT = "AudioWaveformBatchItem";
+const LIVE_EVENT = "AudioWaveformLive";
+
+const BASE64_CHARS =
+  "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+const BASE64_LOOKUP = new Uint8Array(128);
+for (let i = 0; i < BASE64_CHARS.length; i++) {
+  BASE64_LOOKUP[BASE64_CHARS.charCodeAt(i)] = i;
+}
+
+// base64 -> Float32Array（RN 支持的平台均为小端字节序）
+function decodeFloat32(base64: string): Float32Array {
+  let length = base64.length;
+  while (length > 0 && base64.charCodeAt(length - 1) === 61 /* = */) {
+    length--;
+  }
+  const bytes = new Uint8Array((length * 3) >> 2);
+  let byteIndex = 0;
+  for (let i = 0; i < length; i += 4) {
+    const a = BASE64_LOOKUP[base64.charCodeAt(i)] ?? 0;
+    const b = BASE64_LOOKUP[base64.charCodeAt(i + 1)] ?? 0;
+    const c = BASE64_LOOKUP[base64.charCodeAt(i + 2)] ?? 0;
+    const d = BASE64_LOOKUP[base64.charCodeAt(i + 3)] ?? 0;
+    bytes[byteIndex++] = (a << 2) | (b >> 4);
+    if (i + 2 < length) bytes[byteIndex++] = ((b & 15) << 4) | (c >> 2);
+    if (i + 3 < length) bytes[byteIndex++] = ((c & 3) << 6) | d;
+  }
+  return new Float32Array(bytes.buffer, 0, bytes.length >> 2);
+}
+
+function decodeMetrics(native: Partial<Record<WaveformMetric, string>>): WaveformMetrics {
+  const metrics: WaveformMetrics = {};
+  for (const [name, values] of Object.entries(native)) {
+    if (values !== undefined) {
+      metrics[name as WaveformMetric] = decodeFloat32(values);
+    }
+  }
+  return metrics;
+}
+
+function normalizeResult(
+  native: NativeWaveformResult,
+  format: "packed" | "points"
+): WaveformResult {
+  const { values, metrics, channels, ...rest } = native;
+  const result: WaveformResult = rest;
+  if (metrics !== undefined) {
+    result.metrics = decodeMetrics(metrics);
+  }
+  if (channels !== undefined) {
+    result.channels = channels.map(decodeMetrics);
+  }
+  if (values !== undefined) {
+    result.values = decodeFloat32(values);
+  } else if (format === "packed" && native.data) {
+    // 不支持 packed 的平台（iOS）返回逐点数据，在 JS 层转换
+    result.values = Float32Array.from(native.data, (point) => point.value);
+    result.samples = native.data.length;
+    result.format = "packed";
+    delete result.data;
+  }
+  return result;
+}
+
+// 由结果还原逐点数据（time 为每个区间的中点）
+export function toWaveformPoints(result: WaveformResult): WaveformPoint[] {
+  if (result.data) {
+    return result.data;
+  }
+  const values = result.values;
+  if (!values) {
+    return [];
+  }
+  const timePerPoint = (result.duration ?? 0) / values.length;
+  return Array.from(values, (value, index) => ({
+    time: index * timePerPoint + timePerPoint / 2,
+    value,
+    index,
+  }));
+}
+
+let jobCounter = 0;
+
+function createJobId(): string {
+  jobCounter += 1;
+  return `wf-${Date.now().toString(36)}-${jobCounter}`;
+}
+
+// 生成波形数据 - 同步返回loading状态和任务ID，通过回调通知结果
+// 传入 onProgress 时会在解码过程中收到进度和已完成的波形片段，任务结束后自动取消订阅
 export function generateWaveform(
   options: WaveformOptions,
-  callback: (result: WaveformResult) => void
-): { loading: boolean } {
+  callback: (result: WaveformResult) => void,
+  onProgress?: (event: WaveformProgressEvent) => void
+): { loading: boolean; jobId: string } {
+  const jobId = options.jobId ?? createJobId();
+
   // 立即返回loading状态
-  const initialState = { loading: true };
+  const initialState = { loading: true, jobId };
+
+  let subscription: { remove(): void } | undefined;
+  if (onProgress) {
+    subscription = addWaveformProgressListener((event) => {
+      if (event.jobId === jobId) {
+        onProgress(event);
+      }
+    });
+  }
+
+  const format = options.format ?? "packed";
 
   // 异步处理，完成后通过回调通知
-  AudioWaveform.getWaveform(options, callback);
+  AudioWaveform.getWaveform(
+    { ...options, jobId, format, progress: options.progress ?? onProgress !== undefined },
+    (result: NativeWaveformResult) => {
+      subscription?.remove();
+      callback(normalizeResult(result, format));
+    }
+  );
 
   return initialState;
 }
 
+// 批量生成波形（仅 Android）：一次调用处理整个列表，重复路径只处理一次，已缓存的结果直接返回
+// 传入 onItem 时每完成一个文件回调一次，可边解码边显示
+export async function getWaveforms(
+  urls: string[],
+  options: WaveformBatchOptions = {},
+  onItem?: (item: WaveformBatchItem) => void
+): Promise<WaveformBatchResult> {
+  if (!AudioWaveform.getWaveforms) {
+    throw new Error("getWaveforms is not supported on this platform");
+  }
+  const jobId = options.jobId ?? createJobId();
+  const stream = options.stream ?? onItem !== undefined;
+
+  const streamed = new Map<string, Float32Array>();
+  const subscription = stream
+    ? DeviceEventEmitter.addListener(
+        BATCH_ITEM_EVENT,
+        (event: NativeWaveformBatchItem & { jobId: string }) => {
+          if (event.jobId !== jobId) return;
+          const { jobId: _jobId, values, ...rest } = event;
+          const item: WaveformBatchItem = { ...rest };
+          if (values !== undefined) {
+            item.values = decodeFloat32(values);
+            streamed.set(item.url, item.values);
+          }
+          onItem?.(item);
+        }
+      )
+    : undefined;
+
+  try {
+    const native: NativeWaveformBatchResult = await AudioWaveform.getWaveforms(urls, {
+      ...options,
+      jobId,
+      stream,
+    });
+    const { values, items, ...rest } = native;
+    const packed = values !== undefined ? decodeFloat32(values) : undefined;
+    return {
+      ...rest,
+      items: items.map((nativeItem, index) => {
+        const { values: _values, ...fields } = nativeItem;
+        const item: WaveformBatchItem = { ...fields };
+        const itemValues =
+          packed?.subarray(index * native.samples, (index + 1) * native.samples) ??
+          streamed.get(item.url);
+        if (item.error === undefined && itemValues !== undefined) {
+          item.values = itemValues;
+        }
+        return item;
+      }),
+    };
+  } finally {
+    subscription?.remove();
+  }
+}
+
+// 订阅所有任务的解码进度事件（需在 options 中设置 progress: true）
+export function addWaveformProgressListener(
+  listener: (event: WaveformProgressEvent) => void
+): { remove(): void } {
+  return DeviceEventEmitter.addListener(PROGRESS_EVENT, listener);
+}
+
+let liveSubscription: { remove(): void } | undefined;
+
+// 开始实时录音波形（仅 Android，需已获得录音权限），onUpdate 按 updateInterval 收到新完成的区间
+export async function startLiveWaveform(
+  options: LiveWaveformOptions = {},
+  onUpdate?: (update: LiveWaveformUpdate) => void
+): Promise<LiveWaveformInfo> {
+  if (!AudioWaveform.startLiveWaveform) {
+    throw new Error("实时录音波形仅支持 Android");
+  }
+  liveSubscription?.remove();
+  liveSubscription = onUpdate ? DeviceEventEmitter.addListener(LIVE_EVENT, onUpdate) : undefined;
+  try {
+    return await AudioWaveform.startLiveWaveform(options);
+  } catch (error) {
+    liveSubscription?.remove();
+    liveSubscription = undefined;
+    throw error;
+  }
+}
+
+// 停止实时录音，返回全部区间的波形值；设置了 output 时附带录音文件的完整波形
+export async function stopLiveWaveform(): Promise<LiveWaveformResult> {
+  try {
+    const native: NativeLiveWaveformResult = await AudioWaveform.stopLiveWaveform();
+    const { values, waveform, ...rest } = native;
+    const result: LiveWaveformResult = { ...rest, values: decodeFloat32(values) };
+    if (waveform !== undefined) {
+      result.waveform = normalizeResult(waveform, "packed");
+    }
+    return result;
+  } finally {
+    liveSubscription?.remove();
+    liveSubscription = undefined;
+  }
+}
+
 // 检查是否正在处理
 export function isProcessing(): Promise<boolean> {
   return AudioWaveform.isProcessing();
 }
 
-// 取消当前任务
-export function cancelWaveform(): void {
-  AudioWaveform.cancel();
+// 取消任务：传入任务ID只取消该任务，不传则取消全部任务
+export function cancelWaveform(jobId?: string): void {
+  if (jobId !== undefined) {
+    AudioWaveform.cancelJob(jobId);
+  } else {
+    AudioWaveform.cancel();
+  }
+}
+
+// 查询时间范围内的波形（仅 Android）：首次调用时为文件构建并缓存波形金字塔，之后的缩放和滚动查询无需重新解码
+export async function getWaveformRange(
+  url: string,
+  startSec: number,
+  endSec: number,
+  points: number
+): Promise<WaveformRangeResult> {
+  if (!AudioWaveform.getWaveformRange) {
+    throw new Error("getWaveformRange is not supported on this platform");
+  }
+  const native: NativeWaveformRangeResult = await AudioWaveform.getWaveformRange(
+    url,
+    startSec,
+    endSec,
+    points
+  );
+  return {
+    ...native,
+    min: decodeFloat32(native.min),
+    max: decodeFloat32(native.max),
+    rms: decodeFloat32(native.rms),
+  };
+}
+
+// 预先创建解码器（仅 Android），如 ["audio/mp4a-latm", "audio/mpeg"]；返回实际新建的实例数
+export function prewarmDecoders(mimeTypes: string[]): Promise<number> {
+  if (!AudioWaveform.prewarm) {
+    return Promise.resolve(0);
+  }
+  return AudioWaveform.prewarm(mimeTypes);
+}
+
+// 获取作业统计（仅 Android，其他平台返回 null）
+export function getStats(): Promise<WaveformStats | null> {
+  if (!AudioWaveform.getStats) {
+    return Promise.resolve(null);
+  }
+  return AudioWaveform.getStats();
+}
+
+// 开启或关闭原生层的解码调试日志（仅 Android），默认关闭
+export function setDebugLogging(enabled: boolean): void {
+  AudioWaveform.setDebugLogging?.(enabled);
+}
+
+// 获取波形缓存统计（仅 Android，其他平台返回 null）
+export function getCacheStats(): Promise<WaveformCacheStats | null> {
+  if (!AudioWaveform.getCacheStats) {
+    return Promise.resolve(null);
+  }
+  return AudioWaveform.getCacheStats();
+}
+
+// 清空波形缓存
+export function clearWaveformCache(): Promise<void> {
+  if (!AudioWaveform.clearCache) {
+    return Promise.resolve();
+  }
+  return AudioWaveform.clearCache();
 }